@@ -0,0 +1,154 @@
+package com.example.springjdk17demo.jmh;
+
+import com.example.springjdk17demo.jca.AesGcmService;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AES-GCM 加密吞吐，ops/s 乘以 size 即字节吞吐
+ * <p>
+ * 16MB 及以下在直接内存的 ByteBuffer 之间单条加密；更大的走分段流式加密，数据源和输出都不占内存。
+ * newCipher 对比小消息每条都 {@link Cipher#getInstance} 的写法，尺寸单独参数化。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AesGcmBenchmark {
+
+    static final int MAX_MESSAGE_BYTES = 16 << 20;
+
+    @Param({"64", "1024", "16384", "262144", "4194304", "67108864", "1073741824"})
+    long size;
+
+    private AesGcmService service;
+    private ByteBuffer src;
+    private ByteBuffer dst;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        service = new AesGcmService(AesGcmService.generateKey(128));
+        if (size <= MAX_MESSAGE_BYTES) {
+            src = ByteBuffer.allocateDirect((int) size);
+            dst = ByteBuffer.allocateDirect(AesGcmService.encryptedLength((int) size));
+        }
+    }
+
+    @Benchmark
+    public long cachedCipher() throws Exception {
+        if (src != null) {
+            return service.encrypt(src.clear(), dst.clear());
+        }
+        return service.encrypt(new ZeroChannel(size), DiscardChannel.INSTANCE);
+    }
+
+    @Benchmark
+    public static int newCipher(SmallMessage message) throws Exception {
+        byte[] iv = message.iv;
+        long i = ++message.counter;
+        iv[0] = (byte) i;
+        iv[1] = (byte) (i >>> 8);
+        iv[2] = (byte) (i >>> 16);
+        iv[3] = (byte) (i >>> 24);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, message.key, new GCMParameterSpec(AesGcmService.TAG_LENGTH * 8, iv));
+        return cipher.doFinal(message.src.clear(), message.dst.clear());
+    }
+
+    /**
+     * 每条消息都新建 Cipher 的对照组，只测小消息
+     */
+    @State(Scope.Thread)
+    public static class SmallMessage {
+
+        @Param({"64", "1024", "16384"})
+        int size;
+
+        SecretKey key;
+        ByteBuffer src;
+        ByteBuffer dst;
+        final byte[] iv = new byte[AesGcmService.IV_LENGTH];
+        long counter;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            key = AesGcmService.generateKey(128);
+            src = ByteBuffer.allocateDirect(size);
+            dst = ByteBuffer.allocateDirect(AesGcmService.encryptedLength(size));
+        }
+    }
+
+    /**
+     * 产生 size 个零字节
+     */
+    static final class ZeroChannel implements ReadableByteChannel {
+
+        private long remaining;
+
+        ZeroChannel(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = (int) Math.min(dst.remaining(), remaining);
+            dst.position(dst.position() + n);
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 丢弃写入的数据
+     */
+    enum DiscardChannel implements WritableByteChannel {
+        INSTANCE;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
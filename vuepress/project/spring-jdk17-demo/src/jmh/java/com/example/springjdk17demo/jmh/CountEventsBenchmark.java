@@ -0,0 +1,69 @@
+package com.example.springjdk17demo.jmh;
+
+import com.example.springjdk17demo.profiler.BucketedWindowCounter;
+import com.example.springjdk17demo.profiler.CountEvents;
+import com.example.springjdk17demo.profiler.SlidingWindowCounter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 滑动窗口计数的单次更新
+ * <p>
+ * 时间戳每次加 1，窗口长度为 window，稳定后窗口内始终有 window 个事件。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CountEventsBenchmark {
+
+    @Param({"100", "10000"})
+    int window;
+
+    private Deque<Long> deque;
+    private SlidingWindowCounter ring;
+    private BucketedWindowCounter bucketed;
+    private long nanos;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        deque = new ArrayDeque<>();
+        ring = new SlidingWindowCounter(window);
+        bucketed = new BucketedWindowCounter(window, 100);
+        for (nanos = 0; nanos < window; nanos++) {
+            CountEvents.update(deque, nanos, window);
+            ring.update(nanos);
+            bucketed.record(nanos);
+        }
+    }
+
+    @Benchmark
+    public int deque() {
+        return CountEvents.update(deque, nanos++, window);
+    }
+
+    @Benchmark
+    public int ringBuffer() {
+        return ring.update(nanos++);
+    }
+
+    @Benchmark
+    public long bucketed() {
+        return bucketed.update(nanos++);
+    }
+}
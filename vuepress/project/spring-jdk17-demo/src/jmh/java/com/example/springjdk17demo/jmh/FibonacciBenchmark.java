@@ -0,0 +1,49 @@
+package com.example.springjdk17demo.jmh;
+
+import com.example.springjdk17demo.profiler.Fibonacci;
+import com.example.springjdk17demo.profiler.FibonacciEngine;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 朴素递归与快速倍增的斐波那契
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FibonacciBenchmark {
+
+    @Param({"10", "20", "30"})
+    int n;
+
+    private final FibonacciEngine engine = new FibonacciEngine(0);
+
+    @Benchmark
+    public long naive() {
+        return Fibonacci.fib(n);
+    }
+
+    @Benchmark
+    public long fastDoubling() {
+        return FibonacciEngine.fib(n);
+    }
+
+    @Benchmark
+    public BigInteger fastDoublingBig() {
+        // 缓存容量为 0，每次都实际计算
+        return engine.fibExact(n + 1000);
+    }
+}
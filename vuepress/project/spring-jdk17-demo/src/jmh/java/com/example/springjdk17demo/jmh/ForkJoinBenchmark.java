@@ -0,0 +1,90 @@
+package com.example.springjdk17demo.jmh;
+
+import com.example.springjdk17demo.concurrent.MyTask;
+import com.example.springjdk17demo.concurrent.PrimitiveAggregations;
+import com.example.springjdk17demo.concurrent.RangeReducer;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 区间求和：MyTask、RangeReducer、装箱并行流、原始类型并行聚合
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ForkJoinBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"1", "4"})
+    int threads;
+
+    private ForkJoinPool pool;
+    private RangeReducer<Long> reducer;
+    private List<Integer> boxed;
+    private int[] values;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+        reducer = new RangeReducer<>(pool, 0L, (start, end) -> {
+            long sum = 0;
+            for (long i = start; i <= end; i++) {
+                sum += i;
+            }
+            return sum;
+        }, Long::sum);
+        boxed = IntStream.rangeClosed(1, size).boxed().collect(Collectors.toList());
+        values = IntStream.rangeClosed(1, size).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int myTask() {
+        return pool.invoke(new MyTask(1, size));
+    }
+
+    @Benchmark
+    public long rangeReducer() {
+        return reducer.reduce(1, size);
+    }
+
+    @Benchmark
+    public int boxedParallelStream() {
+        return pool.submit(() -> boxed.parallelStream().reduce(0, Integer::sum)).join();
+    }
+
+    @Benchmark
+    public long primitiveArraySum() {
+        return PrimitiveAggregations.sum(pool, values);
+    }
+
+    @Benchmark
+    public long primitiveStreamSum() {
+        return PrimitiveAggregations.sum(pool, IntStream.rangeClosed(1, size));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.springjdk17demo.jmh;
+
+import com.example.springjdk17demo.concurrent.PrimeFinder;
+import com.example.springjdk17demo.concurrent.PrimeRangeFinder;
+import com.example.springjdk17demo.concurrent.PrimeSieve;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 素数查找：原来的试除法、单线程分段筛、ForkJoin 分段筛
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrimeBenchmark {
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"1", "4"})
+    int threads;
+
+    private PrimeSieve sieve;
+    private ForkJoinPool pool;
+    private PrimeFinder finder;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sieve = new PrimeSieve(size);
+        pool = new ForkJoinPool(threads);
+        finder = new PrimeFinder(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // 传入的线程池不归 PrimeFinder 所有，close 不会关闭它
+        finder.close();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int trialDivision() {
+        int count = 0;
+        for (int i = 1; i <= size; i++) {
+            if (isPrime(i)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int[] rangeFinder() {
+        return new PrimeRangeFinder(sieve, 1, size).call();
+    }
+
+    @Benchmark
+    public int sieveCount() {
+        return sieve.count(1, size);
+    }
+
+    @Benchmark
+    public long primeFinderCount() {
+        return finder.count(1, size);
+    }
+
+    /**
+     * 重构前 PrimeRangeFinder 的试除法，作为基线
+     */
+    private static boolean isPrime(int number) {
+        if (number <= 1) {
+            return false;
+        }
+        for (int i = 2; i <= Math.sqrt(number); i++) {
+            if (number % i == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
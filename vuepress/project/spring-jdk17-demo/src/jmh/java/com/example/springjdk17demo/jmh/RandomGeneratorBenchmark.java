@@ -0,0 +1,57 @@
+package com.example.springjdk17demo.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JDK 17 自带的全部 RandomGenerator 算法，即 RandomTest 中 RandomGeneratorFactory.all() 列出的那些
+ * <p>
+ * 状态按线程隔离，可用 -t 指定线程数观察多线程下的表现。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandomGeneratorBenchmark {
+
+    @Param({"L32X64MixRandom", "L64X128MixRandom", "L64X128StarStarRandom", "L64X256MixRandom", "L64X1024MixRandom",
+            "L128X128MixRandom", "L128X256MixRandom", "L128X1024MixRandom", "Xoroshiro128PlusPlus", "Xoshiro256PlusPlus",
+            "Random", "SecureRandom", "SplittableRandom"})
+    String algorithm;
+
+    private RandomGenerator generator;
+
+    @Setup
+    public void setup() {
+        generator = RandomGeneratorFactory.of(algorithm).create();
+    }
+
+    @Benchmark
+    public long nextLong() {
+        return generator.nextLong();
+    }
+
+    @Benchmark
+    public int nextIntBounded() {
+        return generator.nextInt(10);
+    }
+
+    @Benchmark
+    public double nextDouble() {
+        return generator.nextDouble();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.springjdk17demo.jmh;
+
+import com.example.springjdk17demo.xml.XmlRecordReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * DOM、XPath、SAX 与 StAX 记录抽取：对合成书目求价格总和，一次操作解析整个文件
+ * <p>
+ * 每本书约 450 字节，books 为 50000 时文件约 22MB。加 -prof gc 可以看到每次操作的分配量，DOM 和 XPath 要建整棵树。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XmlParsingBenchmark {
+
+    @Param({"1000", "50000"})
+    int books;
+
+    private Path file;
+    private DocumentBuilderFactory documentBuilderFactory;
+    private SAXParserFactory saxParserFactory;
+    private XPathExpression prices;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        file = Files.createTempFile("books", ".xml");
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write("""
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <bookstore xmlns="http://www.example.com/bookstore"
+                            xmlns:author="http://www.example.com/author"
+                            xmlns:publisher="http://www.example.com/publisher">
+                    """);
+            for (int i = 0; i < books; i++) {
+                writer.write("""
+                            <book category="%s" id="%d">
+                                <title>Book &amp; Title %d</title>
+                                <author:author>
+                                    <author:name>Author %d</author:name>
+                                    <author:birthplace>Place %d</author:birthplace>
+                                </author:author>
+                                <publisher:publisher>
+                                    <publisher:name>Publisher %d</publisher:name>
+                                    <publisher:location>City %d</publisher:location>
+                                </publisher:publisher>
+                                <price currency="USD">%d.%d9</price>
+                            </book>
+                        """.formatted(i % 3 == 0 ? "fiction" : "non-fiction", i, i, i % 1000, i % 50, i % 200,
+                        i % 20, i % 100, i % 10));
+            }
+            writer.write("</bookstore>\n");
+        }
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        saxParserFactory = SAXParserFactory.newInstance();
+        prices = XPathFactory.newInstance().newXPath().compile("/bookstore/book/price");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public double dom() throws Exception {
+        Document document = documentBuilderFactory.newDocumentBuilder().parse(file.toFile());
+        NodeList nodes = document.getElementsByTagName("price");
+        double sum = 0;
+        for (int i = 0; i < nodes.getLength(); i++) {
+            sum += Double.parseDouble(nodes.item(i).getTextContent());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double xpath() throws Exception {
+        Document document = documentBuilderFactory.newDocumentBuilder().parse(file.toFile());
+        NodeList nodes = (NodeList) prices.evaluate(document, XPathConstants.NODESET);
+        double sum = 0;
+        for (int i = 0; i < nodes.getLength(); i++) {
+            sum += Double.parseDouble(nodes.item(i).getTextContent());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sax() throws Exception {
+        double[] sum = new double[1];
+        saxParserFactory.newSAXParser().parse(file.toFile(), new DefaultHandler() {
+            final StringBuilder text = new StringBuilder();
+            boolean inPrice;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                inPrice = "price".equals(qName);
+                text.setLength(0);
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                if (inPrice) {
+                    text.append(ch, start, length);
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                if (inPrice) {
+                    sum[0] += Double.parseDouble(text.toString());
+                    inPrice = false;
+                }
+            }
+        });
+        return sum[0];
+    }
+
+    @Benchmark
+    public double stax() throws IOException, XMLStreamException {
+        double[] sum = new double[1];
+        XmlRecordReader.forEach(file, "/bookstore/book", record -> sum[0] += Double.parseDouble(record.get("price")));
+        return sum[0];
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.springjdk17demo;
+
+import com.example.springjdk17demo.profiler.FibonacciEngine;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+@Controller
+public class FibonacciController {
+
+    /**
+     * 允许计算的最大下标，F(100000) 约有两万位
+     */
+    static final int MAX_INDEX = 100_000;
+
+    /**
+     * 单次批量请求的最大下标个数
+     */
+    static final int MAX_BATCH = 1000;
+
+    private final FibonacciEngine engine = new FibonacciEngine();
+
+    /**
+     * 计算单个斐波那契数
+     *
+     * @param n 下标
+     * @return {@link FibonacciResult}
+     */
+    @GetMapping("/fibonacci/{n}")
+    @ResponseBody
+    public FibonacciResult fibonacci(@PathVariable int n) {
+        checkIndex(n);
+        return new FibonacciResult(n, engine.fibExact(n).toString());
+    }
+
+    /**
+     * 批量计算，如 /fibonacci?n=10,20,30
+     *
+     * @param ns 下标
+     * @return {@link List}<{@link FibonacciResult}>
+     */
+    @GetMapping("/fibonacci")
+    @ResponseBody
+    public List<FibonacciResult> batch(@RequestParam("n") int[] ns) {
+        if (ns.length > MAX_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most " + MAX_BATCH + " indices per request");
+        }
+        for (int n : ns) {
+            checkIndex(n);
+        }
+        List<BigInteger> values = engine.batch(ns);
+        List<FibonacciResult> results = new ArrayList<>(ns.length);
+        for (int i = 0; i < ns.length; i++) {
+            results.add(new FibonacciResult(ns[i], values.get(i).toString()));
+        }
+        return results;
+    }
+
+    private static void checkIndex(int n) {
+        if (n < 0 || n > MAX_INDEX) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "n must be in [0, " + MAX_INDEX + "]");
+        }
+    }
+
+    /**
+     * 结果值用字符串表示，避免大数在 JSON 客户端丢失精度
+     */
+    public record FibonacciResult(int n, String value) {
+
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.springjdk17demo.concurrent;
+
+import java.util.function.LongConsumer;
+
+/**
+ * 可合并的 long 累加器
+ * <p>
+ * 每个并行叶子各持有一个实例，逐个 {@link #accept(long)} 原始值，最后用 {@link #merge(LongAggregate)} 两两合并。
+ */
+public interface LongAggregate<A extends LongAggregate<A>> extends LongConsumer {
+
+    /**
+     * 把 other 的结果合并进当前实例
+     */
+    void merge(A other);
+}
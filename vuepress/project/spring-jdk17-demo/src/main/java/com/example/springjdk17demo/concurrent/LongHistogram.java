@@ -0,0 +1,102 @@
+package com.example.springjdk17demo.concurrent;
+
+/**
+ * 对数-线性分桶的直方图，用于估算百分位
+ * <p>
+ * 小于 2^bits 的值每个值一个桶，更大的值按最高位分组，每组再均分为 2^bits 个桶，
+ * 因此百分位的相对误差不超过 2^-bits，桶数组大小固定，与样本数量无关。只接受非负值。
+ */
+public class LongHistogram implements LongAggregate<LongHistogram> {
+
+    /**
+     * 默认精度，相对误差约 0.8%
+     */
+    public static final int DEFAULT_BITS = 7;
+
+    private final int bits;
+    private final long[] counts;
+    private final LongStats stats = new LongStats();
+
+    public LongHistogram() {
+        this(DEFAULT_BITS);
+    }
+
+    public LongHistogram(int bits) {
+        if (bits < 1 || bits > 16) {
+            throw new IllegalArgumentException("bits must be in [1, 16]: " + bits);
+        }
+        this.bits = bits;
+        this.counts = new long[(64 - bits) << bits];
+    }
+
+    @Override
+    public void accept(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value: " + value);
+        }
+        counts[indexOf(value)]++;
+        stats.accept(value);
+    }
+
+    @Override
+    public void merge(LongHistogram other) {
+        if (other.bits != bits) {
+            throw new IllegalArgumentException("cannot merge histograms of different precision");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        stats.merge(other.stats);
+    }
+
+    /**
+     * 估算第 percentile 百分位的值，返回所在桶的上界，不超过实际最大值
+     *
+     * @param percentile 0 到 100
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+        }
+        long total = stats.getCount();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(stats.getMin(), Math.min(stats.getMax(), upperBound(i)));
+            }
+        }
+        return stats.getMax();
+    }
+
+    public long getCount() {
+        return stats.getCount();
+    }
+
+    public LongStats getStats() {
+        return stats;
+    }
+
+    int indexOf(long value) {
+        int sub = 1 << bits;
+        if (value < sub) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - bits;
+        return ((shift + 1) << bits) + (int) ((value >>> shift) - sub);
+    }
+
+    long upperBound(int index) {
+        int sub = 1 << bits;
+        if (index < sub) {
+            return index;
+        }
+        int shift = (index >>> bits) - 1;
+        long low = (long) (sub + (index & (sub - 1))) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
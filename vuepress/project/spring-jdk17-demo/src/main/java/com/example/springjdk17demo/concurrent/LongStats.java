@@ -0,0 +1,56 @@
+package com.example.springjdk17demo.concurrent;
+
+/**
+ * 计数、求和、最小值、最大值
+ */
+public class LongStats implements LongAggregate<LongStats> {
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    @Override
+    public void accept(long value) {
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    @Override
+    public void merge(LongStats other) {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "LongStats{count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + '}';
+    }
+}
@@ -3,6 +3,8 @@ package com.example.springjdk17demo.concurrent;
 import java.util.concurrent.RecursiveTask;
 
 /**
+ * 对 [start, end] 求和的 ForkJoin 示例，通用的 long 区间归约见 {@link RangeReducer}
+ *
  * @author xuanyuanli
  * @date 2023/8/9
  */
@@ -31,12 +33,11 @@ public class MyTask extends RecursiveTask<Integer> {
             MyTask leftTask = new MyTask(start, mid);
             MyTask rightTask = new MyTask(mid + 1, end);
 
-            // 拆分任务并等待子任务的完成
-            leftTask.fork();
+            // 只 fork 右半边，左半边由当前线程直接计算，避免当前线程空等
             rightTask.fork();
+            int leftResult = leftTask.compute();
 
             // 合并子任务的结果
-            int leftResult = leftTask.join();
             int rightResult = rightTask.join();
 
             return leftResult + rightResult;
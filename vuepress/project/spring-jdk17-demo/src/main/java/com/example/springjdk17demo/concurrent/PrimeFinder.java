@@ -1,27 +1,138 @@
 package com.example.springjdk17demo.concurrent;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
-public class PrimeFinder {
-    public static void main(String[] args) throws InterruptedException, ExecutionException {
-        ExecutorService executor = Executors.newFixedThreadPool(4);
-        List<Future<List<Integer>>> futures = new ArrayList<>();
-
-        for (int i = 0; i < 10; i++) {
-            int start = i * 10 + 1;
-            int end = (i + 1) * 10;
-            futures.add(executor.submit(new PrimeRangeFinder(start, end)));
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 基于 ForkJoinPool 工作窃取的素数查找
+ * <p>
+ * 区间按估算代价而不是宽度切成若干叶子，叶子数量随并行度变化；{@link #segments(int, int)} 按区间顺序流式返回各叶子结果，
+ * 前面的叶子算完即可消费，无需等待整个区间完成。
+ */
+public class PrimeFinder implements AutoCloseable {
+
+    /**
+     * 每个工作线程大致分到的叶子数，多切一些让窃取有余地
+     */
+    static final int LEAVES_PER_WORKER = 8;
+
+    /**
+     * 叶子最小宽度，再小任务调度开销就超过筛选本身了
+     */
+    static final int MIN_LEAF_WIDTH = 1 << 12;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    public PrimeFinder() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    public PrimeFinder(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    private PrimeFinder(ForkJoinPool pool, boolean ownsPool) {
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    public static void main(String[] args) {
+        int start = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int end = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        try (PrimeFinder finder = new PrimeFinder()) {
+            finder.segments(start, end).forEach(primes -> System.out.println("Primes: " + Arrays.toString(primes)));
         }
+    }
 
-        for (Future<List<Integer>> future : futures) {
-            System.out.println("Primes: " + future.get());
+    /**
+     * 按区间顺序返回各叶子的素数，后续叶子仍在后台计算
+     */
+    @SuppressWarnings("unchecked")
+    public Stream<int[]> segments(int start, int end) {
+        long[] bounds = plan(start, end, leafCount(start, end));
+        CompletableFuture<int[]>[] slots = new CompletableFuture[bounds.length - 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new CompletableFuture<>();
         }
+        pool.execute(new PrimeSearchTask(new PrimeSieve(Math.max(end, 0)), bounds, slots));
+        return Arrays.stream(slots).map(CompletableFuture::join);
+    }
+
+    public IntStream stream(int start, int end) {
+        return segments(start, end).flatMapToInt(IntStream::of);
+    }
+
+    public int[] find(int start, int end) {
+        return stream(start, end).toArray();
+    }
+
+    public long count(int start, int end) {
+        long[] bounds = plan(start, end, leafCount(start, end));
+        return pool.invoke(new PrimeSearchTask(new PrimeSieve(Math.max(end, 0)), bounds, null));
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    private int leafCount(int start, int end) {
+        long span = (long) end - start + 1;
+        long bySize = Math.max(1, span / MIN_LEAF_WIDTH);
+        return (int) Math.min((long) pool.getParallelism() * LEAVES_PER_WORKER, bySize);
+    }
+
+    /**
+     * 把 [start, end] 切成至多 leaves 个估算代价相近的叶子，返回边界数组
+     */
+    static long[] plan(int start, int end, int leaves) {
+        if (end < start) {
+            return new long[]{start};
+        }
+        long[] bounds = new long[leaves + 1];
+        bounds[0] = start;
+        double target = cost(start, end) / leaves;
+        int size = 1;
+        long low = start;
+        while (size < leaves && low <= end) {
+            // 二分查找使 [low, m] 的代价达到 target 的最小 m
+            long a = low;
+            long b = end;
+            while (a < b) {
+                long m = (a + b) >>> 1;
+                if (cost(low, m) >= target) {
+                    b = m;
+                } else {
+                    a = m + 1;
+                }
+            }
+            low = a + 1;
+            if (low > end) {
+                break;
+            }
+            bounds[size++] = low;
+        }
+        bounds[size++] = (long) end + 1;
+        return Arrays.copyOf(bounds, size);
+    }
 
-        executor.shutdown();
+    /**
+     * 分段筛 [low, high] 的估算代价：每个奇数被划掉的期望次数约为 ln ln x，
+     * 再加上每段都要遍历一遍 sqrt(high) 以内基础素数的固定开销
+     */
+    static double cost(long low, long high) {
+        long width = high - low + 1;
+        double mid = Math.max(16, (low + high) / 2.0);
+        double marking = width / 2.0 * (1 + Math.log(Math.log(mid)));
+        double root = Math.max(4, Math.sqrt(Math.max(high, 16)));
+        long segments = width / (2L * PrimeSieve.SEGMENT_BITS) + 1;
+        return marking + segments * (root / Math.log(root));
     }
 }
@@ -1,38 +1,36 @@
 package com.example.springjdk17demo.concurrent;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.Callable;
 
-public class PrimeRangeFinder implements Callable<List<Integer>> {
+/**
+ * 查找 [start, end] 内的素数
+ * <p>
+ * 多个 PrimeRangeFinder 可以共用同一个 {@link PrimeSieve}，基础素数表只算一次。
+ */
+public class PrimeRangeFinder implements Callable<int[]> {
+    private final PrimeSieve sieve;
     private final int start;
     private final int end;
 
     public PrimeRangeFinder(int start, int end) {
+        this(new PrimeSieve(end), start, end);
+    }
+
+    public PrimeRangeFinder(PrimeSieve sieve, int start, int end) {
+        this.sieve = sieve;
         this.start = start;
         this.end = end;
     }
 
     @Override
-    public List<Integer> call() {
-        List<Integer> primes = new ArrayList<>();
-        for (int i = start; i <= end; i++) {
-            if (isPrime(i)) {
-                primes.add(i);
-            }
-        }
-        return primes;
+    public int[] call() {
+        return sieve.primes(start, end);
     }
 
-    private boolean isPrime(int number) {
-        if (number <= 1) {
-            return false;
-        }
-        for (int i = 2; i <= Math.sqrt(number); i++) {
-            if (number % i == 0) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * 只统计个数，不物化素数数组
+     */
+    public int count() {
+        return sieve.count(start, end);
     }
 }
@@ -0,0 +1,65 @@
+package com.example.springjdk17demo.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 按预先规划好的叶子区间递归拆分的素数查找任务，返回素数个数
+ * <p>
+ * 叶子区间由 {@link PrimeFinder} 按估算代价切分，每个叶子代价相近，所以这里只需按叶子下标对半拆。
+ * 若传入 slots，每个叶子算完后把结果写入对应下标的 future，调用方可以按顺序边算边取。
+ */
+public class PrimeSearchTask extends RecursiveTask<Long> {
+    private final PrimeSieve sieve;
+    private final long[] bounds;
+    private final CompletableFuture<int[]>[] slots;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param bounds 叶子边界，第 i 个叶子为 [bounds[i], bounds[i + 1] - 1]
+     * @param slots  每个叶子的结果，为 null 时只计数
+     */
+    public PrimeSearchTask(PrimeSieve sieve, long[] bounds, CompletableFuture<int[]>[] slots) {
+        this(sieve, bounds, slots, 0, bounds.length - 1);
+    }
+
+    private PrimeSearchTask(PrimeSieve sieve, long[] bounds, CompletableFuture<int[]>[] slots, int from, int to) {
+        this.sieve = sieve;
+        this.bounds = bounds;
+        this.slots = slots;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+        if (to - from <= 1) {
+            return from == to ? 0L : computeLeaf();
+        }
+        int mid = (from + to) >>> 1;
+        PrimeSearchTask leftTask = new PrimeSearchTask(sieve, bounds, slots, from, mid);
+        PrimeSearchTask rightTask = new PrimeSearchTask(sieve, bounds, slots, mid, to);
+
+        // 右半边交给其他线程窃取，当前线程先算靠前的左半边，便于调用方尽早按序拿到结果
+        rightTask.fork();
+        long leftResult = leftTask.compute();
+        return leftResult + rightTask.join();
+    }
+
+    private long computeLeaf() {
+        int low = (int) bounds[from];
+        int high = (int) (bounds[to] - 1);
+        if (slots == null) {
+            return sieve.count(low, high);
+        }
+        try {
+            int[] primes = sieve.primes(low, high);
+            slots[from].complete(primes);
+            return primes.length;
+        } catch (RuntimeException | Error e) {
+            slots[from].completeExceptionally(e);
+            throw e;
+        }
+    }
+}
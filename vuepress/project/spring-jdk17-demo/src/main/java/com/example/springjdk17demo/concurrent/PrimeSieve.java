@@ -0,0 +1,201 @@
+package com.example.springjdk17demo.concurrent;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * 分段埃拉托斯特尼筛法
+ * <p>
+ * 构造时一次性筛出 {@code sqrt(limit)} 以内的基础素数表，之后任意 {@code [start, end]} 区间都按段筛选：
+ * 每段只记录奇数，用 {@code long[]} 位图表示，大小与 L1 缓存相当。基础素数表不可变，可在多个线程间共享，
+ * 每次调用各自分配位图，因此实例是线程安全的。
+ */
+public final class PrimeSieve {
+
+    /**
+     * 每段覆盖的奇数个数，对应 32KB 的位图
+     */
+    static final int SEGMENT_BITS = 32 * 1024 * 8;
+
+    private static final int SEGMENT_WORDS = SEGMENT_BITS >>> 6;
+
+    private final int limit;
+    /**
+     * 不超过 sqrt(limit) 的奇素数
+     */
+    private final int[] basePrimes;
+
+    public PrimeSieve(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        this.basePrimes = oddPrimesUpTo((int) Math.sqrt(limit));
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 统计 [start, end] 内的素数个数
+     */
+    public int count(int start, int end) {
+        int[] count = new int[1];
+        sieve(start, end, (bits, low, n) -> {
+            int words = (n + 63) >>> 6;
+            for (int k = 0; k < words; k++) {
+                count[0] += Long.bitCount(~bits[k] & wordMask(k, n));
+            }
+        }, () -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * 返回 [start, end] 内的全部素数，升序
+     */
+    public int[] primes(int start, int end) {
+        PrimeBuffer buffer = new PrimeBuffer(estimateCount(start, end));
+        forEach(start, end, buffer);
+        return buffer.toArray();
+    }
+
+    /**
+     * 按段惰性计算的素数流，消费到哪一段才筛到哪一段
+     */
+    public IntStream stream(int start, int end) {
+        checkRange(start, end);
+        if (end < 2 || end < start) {
+            return IntStream.empty();
+        }
+        int from = Math.max(start, 2);
+        long span = (long) SEGMENT_BITS * 2;
+        int segments = (int) ((end - (long) from) / span + 1);
+        return IntStream.range(0, segments).flatMap(i -> {
+            long low = from + i * span;
+            long high = Math.min(end, low + span - 1);
+            return IntStream.of(primes((int) low, (int) high));
+        });
+    }
+
+    /**
+     * 依次把 [start, end] 内的素数交给 consumer，不产生装箱对象
+     */
+    public void forEach(int start, int end, IntConsumer consumer) {
+        sieve(start, end, (bits, low, n) -> {
+            int words = (n + 63) >>> 6;
+            for (int k = 0; k < words; k++) {
+                long word = ~bits[k] & wordMask(k, n);
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    consumer.accept((int) (low + 2L * ((k << 6) + bit)));
+                    word &= word - 1;
+                }
+            }
+        }, () -> consumer.accept(2));
+    }
+
+    private void sieve(int start, int end, SegmentVisitor visitor, Runnable onTwo) {
+        checkRange(start, end);
+        if (end < 2 || end < start) {
+            return;
+        }
+        if (start <= 2) {
+            onTwo.run();
+        }
+        long low = Math.max(start, 3) | 1;
+        long[] bits = new long[SEGMENT_WORDS];
+        while (low <= end) {
+            long high = Math.min(end, low + 2L * SEGMENT_BITS - 1);
+            int n = (int) ((high - low) >>> 1) + 1;
+            markComposites(bits, low, high, n);
+            visitor.visit(bits, low, n);
+            low += 2L * SEGMENT_BITS;
+        }
+    }
+
+    /**
+     * 在位图中标记 [low, high] 内的奇合数，第 i 位代表 low + 2i
+     */
+    private void markComposites(long[] bits, long low, long high, int n) {
+        Arrays.fill(bits, 0, (n + 63) >>> 6, 0L);
+        for (int p : basePrimes) {
+            long square = (long) p * p;
+            if (square > high) {
+                break;
+            }
+            long first = Math.max(square, (low + p - 1) / p * p);
+            if ((first & 1) == 0) {
+                first += p;
+            }
+            for (long j = (first - low) >>> 1; j < n; j += p) {
+                bits[(int) (j >>> 6)] |= 1L << j;
+            }
+        }
+    }
+
+    private void checkRange(int start, int end) {
+        if (end > limit) {
+            throw new IllegalArgumentException("end " + end + " exceeds sieve limit " + limit);
+        }
+    }
+
+    private static long wordMask(int k, int n) {
+        int remain = n - (k << 6);
+        return remain >= 64 ? -1L : (1L << remain) - 1;
+    }
+
+    private static int estimateCount(int start, int end) {
+        if (end < 2 || end < start) {
+            return 0;
+        }
+        long span = end - (long) Math.max(start, 2) + 1;
+        // 素数定理估算，略放大以减少扩容
+        return (int) Math.min(span, (long) (span / Math.log(Math.max(end, 3)) * 1.2) + 16);
+    }
+
+    private static int[] oddPrimesUpTo(int n) {
+        if (n < 3) {
+            return new int[0];
+        }
+        boolean[] composite = new boolean[n + 1];
+        int[] primes = new int[n];
+        int size = 0;
+        for (int i = 3; i <= n; i += 2) {
+            if (!composite[i]) {
+                primes[size++] = i;
+                for (long j = (long) i * i; j <= n; j += 2L * i) {
+                    composite[(int) j] = true;
+                }
+            }
+        }
+        return Arrays.copyOf(primes, size);
+    }
+
+    @FunctionalInterface
+    private interface SegmentVisitor {
+        void visit(long[] bits, long low, int n);
+    }
+
+    private static final class PrimeBuffer implements IntConsumer {
+        private int[] values;
+        private int size;
+
+        PrimeBuffer(int capacity) {
+            this.values = new int[Math.max(capacity, 16)];
+        }
+
+        @Override
+        public void accept(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, values.length + (values.length >> 1));
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.springjdk17demo.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * 在指定 ForkJoinPool 上执行的原始类型并行聚合，全程不装箱
+ * <p>
+ * 流版本把 {@code parallel()} 流提交到 pool 中执行，流的拆分任务就会落在这个 pool 上；
+ * 数组版本用 {@link RangeReducer} 分块，每个叶子一个累加器，叶子内部只是一个普通 for 循环。
+ */
+public class PrimitiveAggregations {
+
+    private PrimitiveAggregations() {
+    }
+
+    public static long sum(ForkJoinPool pool, IntStream stream) {
+        return pool.submit(() -> stream.parallel().asLongStream().sum()).join();
+    }
+
+    public static long sum(ForkJoinPool pool, LongStream stream) {
+        return pool.submit(() -> stream.parallel().sum()).join();
+    }
+
+    public static <A extends LongAggregate<A>> A aggregate(ForkJoinPool pool, IntStream stream, Supplier<A> supplier) {
+        return pool.submit(() -> stream.parallel().collect(supplier, A::accept, A::merge)).join();
+    }
+
+    public static <A extends LongAggregate<A>> A aggregate(ForkJoinPool pool, LongStream stream, Supplier<A> supplier) {
+        return pool.submit(() -> stream.parallel().collect(supplier, A::accept, A::merge)).join();
+    }
+
+    public static <A extends LongAggregate<A>> A aggregate(ForkJoinPool pool, int[] values, Supplier<A> supplier) {
+        RangeReducer<A> reducer = new RangeReducer<>(pool, supplier.get(), (start, end) -> {
+            A aggregate = supplier.get();
+            for (int i = (int) start; i <= end; i++) {
+                aggregate.accept(values[i]);
+            }
+            return aggregate;
+        }, PrimitiveAggregations::merge);
+        return reducer.reduce(0, values.length - 1);
+    }
+
+    public static <A extends LongAggregate<A>> A aggregate(ForkJoinPool pool, long[] values, Supplier<A> supplier) {
+        RangeReducer<A> reducer = new RangeReducer<>(pool, supplier.get(), (start, end) -> {
+            A aggregate = supplier.get();
+            for (int i = (int) start; i <= end; i++) {
+                aggregate.accept(values[i]);
+            }
+            return aggregate;
+        }, PrimitiveAggregations::merge);
+        return reducer.reduce(0, values.length - 1);
+    }
+
+    public static long sum(ForkJoinPool pool, int[] values) {
+        RangeReducer<Long> reducer = new RangeReducer<>(pool, 0L, (start, end) -> {
+            long sum = 0;
+            for (int i = (int) start; i <= end; i++) {
+                sum += values[i];
+            }
+            return sum;
+        }, Long::sum);
+        return reducer.reduce(0, values.length - 1);
+    }
+
+    public static LongStats stats(ForkJoinPool pool, long[] values) {
+        return aggregate(pool, values, LongStats::new);
+    }
+
+    public static LongHistogram histogram(ForkJoinPool pool, long[] values) {
+        return aggregate(pool, values, LongHistogram::new);
+    }
+
+    private static <A extends LongAggregate<A>> A merge(A left, A right) {
+        left.merge(right);
+        return left;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.springjdk17demo.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+/**
+ * 通用的 long 区间并行归约，是 {@link MyTask} 的一般化
+ * <p>
+ * 叶子函数负责计算一个闭区间 [start, end] 的结果，combiner 按区间顺序合并左右两半（须满足结合律，不要求交换律）。
+ * 未指定阈值时，先在区间开头取一小段实际执行叶子函数测出单个元素的耗时，再结合 ForkJoinPool 的并行度确定拆分阈值：
+ * 叶子既不能短到任务调度开销占了大头，也不能少到线程分不匀。探测段的结果会计入最终结果，不浪费计算。
+ */
+public class RangeReducer<T> {
+
+    /**
+     * 单个叶子期望的最短耗时，远大于 fork/join 一次的开销
+     */
+    static final long TARGET_LEAF_NANOS = 100_000;
+
+    /**
+     * 每个工作线程大致分到的叶子数
+     */
+    static final int LEAVES_PER_WORKER = 8;
+
+    /**
+     * 测量叶子耗时所用的元素个数
+     */
+    static final int PROBE_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+    private final T identity;
+    private final LeafFunction<T> leaf;
+    private final BinaryOperator<T> combiner;
+
+    public RangeReducer(T identity, LeafFunction<T> leaf, BinaryOperator<T> combiner) {
+        this(ForkJoinPool.commonPool(), identity, leaf, combiner);
+    }
+
+    public RangeReducer(ForkJoinPool pool, T identity, LeafFunction<T> leaf, BinaryOperator<T> combiner) {
+        this.pool = Objects.requireNonNull(pool);
+        this.identity = identity;
+        this.leaf = Objects.requireNonNull(leaf);
+        this.combiner = Objects.requireNonNull(combiner);
+    }
+
+    /**
+     * 归约闭区间 [start, end]，自动确定阈值
+     */
+    public T reduce(long start, long end) {
+        if (end < start) {
+            return identity;
+        }
+        long span = end - start + 1;
+        if (span <= PROBE_SIZE) {
+            return leaf.apply(start, end);
+        }
+        long probeEnd = start + PROBE_SIZE - 1;
+        long begin = System.nanoTime();
+        T probe = leaf.apply(start, probeEnd);
+        long elapsed = Math.max(1, System.nanoTime() - begin);
+
+        long threshold = threshold(span, (double) elapsed / PROBE_SIZE, pool.getParallelism());
+        return combiner.apply(probe, reduce(probeEnd + 1, end, threshold));
+    }
+
+    /**
+     * 归约闭区间 [start, end]，区间宽度不超过 threshold 时不再拆分
+     */
+    public T reduce(long start, long end, long threshold) {
+        if (end < start) {
+            return identity;
+        }
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive: " + threshold);
+        }
+        return pool.invoke(new ReduceTask(start, end, threshold));
+    }
+
+    /**
+     * 按单元素耗时和并行度计算拆分阈值
+     *
+     * @param span         区间宽度
+     * @param nanosPerItem 单个元素的测量耗时
+     * @param parallelism  并行度
+     */
+    static long threshold(long span, double nanosPerItem, int parallelism) {
+        long byCost = (long) Math.ceil(TARGET_LEAF_NANOS / Math.max(nanosPerItem, 0.01));
+        long bySpan = span / ((long) Math.max(parallelism, 1) * LEAVES_PER_WORKER);
+        return Math.max(1, Math.max(byCost, bySpan));
+    }
+
+    /**
+     * 计算闭区间 [start, end] 的叶子函数
+     */
+    @FunctionalInterface
+    public interface LeafFunction<T> {
+        T apply(long start, long end);
+    }
+
+    private class ReduceTask extends RecursiveTask<T> {
+        private final long start;
+        private final long end;
+        private final long threshold;
+
+        ReduceTask(long start, long end, long threshold) {
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected T compute() {
+            if (end - start < threshold) {
+                return leaf.apply(start, end);
+            }
+            long mid = start + ((end - start) >>> 1);
+            ReduceTask leftTask = new ReduceTask(start, mid, threshold);
+            ReduceTask rightTask = new ReduceTask(mid + 1, end, threshold);
+
+            // 只 fork 一半，另一半由当前线程直接计算
+            rightTask.fork();
+            T leftResult = leftTask.compute();
+            return combiner.apply(leftResult, rightTask.join());
+        }
+    }
+}
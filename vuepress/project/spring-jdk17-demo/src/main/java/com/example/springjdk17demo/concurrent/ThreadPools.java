@@ -0,0 +1,65 @@
+package com.example.springjdk17demo.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 线程池创建
+ * <p>
+ * 项目以 JDK 17 编译，虚拟线程（JDK 21+）通过反射获取，运行在 JDK 17 上时退回有界的平台线程池。
+ */
+public class ThreadPools {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadFactoryMethod();
+
+    private ThreadPools() {
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程
+     */
+    public static boolean virtualThreadsAvailable() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 支持虚拟线程时每个任务一个虚拟线程，否则为 maxThreads 个平台线程的固定线程池
+     */
+    public static ExecutorService newVirtualOrBounded(int maxThreads, String namePrefix) {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return newBounded(maxThreads, namePrefix);
+    }
+
+    /**
+     * 固定大小、线程带名字的守护线程池
+     */
+    public static ExecutorService newBounded(int threads, String namePrefix) {
+        return Executors.newFixedThreadPool(threads, namedDaemon(namePrefix));
+    }
+
+    public static ThreadFactory namedDaemon(String namePrefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static Method findVirtualThreadFactoryMethod() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
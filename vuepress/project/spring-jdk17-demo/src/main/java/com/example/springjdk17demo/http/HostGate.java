@@ -0,0 +1,89 @@
+package com.example.springjdk17demo.http;
+
+import com.example.springjdk17demo.concurrent.LongHistogram;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 单个主机的并发闸门和耗时统计
+ * <p>
+ * 许可用完后，后来的请求排队等待，{@link #acquire()} 返回的 future 在拿到许可时完成，不阻塞调用线程。
+ * 取消排队中的 future 会把它移出队列；归还许可时跳过已取消的等待者，许可不会转交给不再需要它的请求。
+ */
+final class HostGate {
+
+    private final String host;
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private final LongHistogram latencyMicros = new LongHistogram();
+    private int available;
+    private int inFlight;
+    private long failed;
+
+    HostGate(String host, int permits) {
+        this.host = host;
+        this.available = permits;
+    }
+
+    CompletableFuture<Void> acquire() {
+        synchronized (this) {
+            if (available == 0) {
+                CompletableFuture<Void> waiter = new CompletableFuture<>();
+                waiters.add(waiter);
+                waiter.whenComplete((ignored, error) -> {
+                    if (waiter.isCancelled()) {
+                        remove(waiter);
+                    }
+                });
+                return waiter;
+            }
+            available--;
+            inFlight++;
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 归还许可并记录本次请求的耗时
+     */
+    void release(long nanos, boolean success) {
+        synchronized (this) {
+            if (success) {
+                latencyMicros.accept(nanos / 1000);
+            } else {
+                failed++;
+            }
+        }
+        release();
+    }
+
+    /**
+     * 归还许可，不计入统计
+     */
+    void release() {
+        while (true) {
+            CompletableFuture<Void> next;
+            synchronized (this) {
+                next = waiters.poll();
+                if (next == null) {
+                    available++;
+                    inFlight--;
+                    return;
+                }
+            }
+            // 许可直接转交给下一个等待者，在锁外完成以免在锁内执行它的后续动作；等待者刚被取消时转交给再下一个
+            if (next.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    private synchronized void remove(CompletableFuture<Void> waiter) {
+        waiters.remove(waiter);
+    }
+
+    synchronized HostStats stats() {
+        return new HostStats(host, latencyMicros.getCount(), failed, inFlight, waiters.size(),
+                latencyMicros.percentile(50), latencyMicros.percentile(99),
+                latencyMicros.getCount() == 0 ? 0 : latencyMicros.getStats().getMax());
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.springjdk17demo.http;
+
+/**
+ * 单个主机的请求统计，耗时单位为微秒，从拿到许可到响应体接收完毕
+ */
+public record HostStats(String host, long completed, long failed, int inFlight, int queued, long p50Micros,
+                        long p99Micros, long maxMicros) {
+
+}
@@ -0,0 +1,246 @@
+package com.example.springjdk17demo.http;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscriber;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 共享的出站 HTTP 客户端
+ * <p>
+ * 整个应用共用一个 {@link HttpClient}，连接池、HTTP/2 多路复用和 keep-alive 都由它维护；每次调用新建客户端会丢掉这些。
+ * 在此之上按主机（host:port）限制并发：超出上限的请求排队，等前面的请求连同响应体一起接收完才发出。
+ * 因此 {@link BodyHandlers#ofInputStream()} 这类流式响应在读完（或关闭）之前一直占用许可。
+ * 每个主机记录耗时直方图，见 {@link #stats()}。
+ */
+public class SharedHttpClient {
+
+    public static final int DEFAULT_MAX_PER_HOST = 16;
+
+    private final HttpClient client;
+    private final int maxPerHost;
+    private final Map<String, HostGate> gates = new ConcurrentHashMap<>();
+
+    public SharedHttpClient(int maxPerHost, Duration connectTimeout) {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout)
+                .build(), maxPerHost);
+    }
+
+    public SharedHttpClient(HttpClient client, int maxPerHost) {
+        if (maxPerHost <= 0) {
+            throw new IllegalArgumentException("maxPerHost must be positive: " + maxPerHost);
+        }
+        this.client = client;
+        this.maxPerHost = maxPerHost;
+    }
+
+    /**
+     * 进程内共享的默认实例
+     */
+    public static SharedHttpClient getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    public HttpClient getClient() {
+        return client;
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, BodyHandler<T> handler) throws IOException,
+            InterruptedException {
+        try {
+            return sendAsync(request, handler).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public String getString(URI uri) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(uri).build(), BodyHandlers.ofString()).body();
+    }
+
+    /**
+     * 异步发送，主机并发已满时排队，不阻塞调用线程。
+     * 取消返回的 future 时，排队中的请求离开队列，已发出的请求连同交换一起取消
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, BodyHandler<T> handler) {
+        HostGate gate = gate(request.uri());
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        CompletableFuture<Void> permit = gate.acquire();
+        permit.thenRun(() -> {
+            if (result.isDone()) {
+                // 拿到许可前已被取消
+                gate.release();
+                return;
+            }
+            Exchange exchange = new Exchange(gate);
+            CompletableFuture<HttpResponse<T>> call;
+            try {
+                call = client.sendAsync(request, exchange.wrap(handler));
+            } catch (RuntimeException e) {
+                exchange.finish(false);
+                result.completeExceptionally(e);
+                return;
+            }
+            call.whenComplete((response, error) -> {
+                if (error != null) {
+                    exchange.finish(false);
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(response);
+                }
+            });
+            result.whenComplete((response, error) -> {
+                if (result.isCancelled()) {
+                    call.cancel(true);
+                }
+            });
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                permit.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 批量异步发送，结果顺序与 requests 一致；任何一个失败时返回的 future 异常完成
+     */
+    public <T> CompletableFuture<List<HttpResponse<T>>> sendAll(List<HttpRequest> requests,
+                                                                 BodyHandler<T> handler) {
+        List<CompletableFuture<HttpResponse<T>>> futures = new ArrayList<>(requests.size());
+        for (HttpRequest request : requests) {
+            futures.add(sendAsync(request, handler));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<HttpResponse<T>> responses = new ArrayList<>(futures.size());
+            for (CompletableFuture<HttpResponse<T>> future : futures) {
+                responses.add(future.join());
+            }
+            return responses;
+        });
+    }
+
+    /**
+     * 各主机的统计快照
+     */
+    public List<HostStats> stats() {
+        List<HostStats> stats = new ArrayList<>();
+        for (HostGate gate : gates.values()) {
+            stats.add(gate.stats());
+        }
+        return stats;
+    }
+
+    public HostStats stats(URI uri) {
+        return gate(uri).stats();
+    }
+
+    private HostGate gate(URI uri) {
+        String host = hostKey(uri);
+        return gates.computeIfAbsent(host, key -> new HostGate(key, maxPerHost));
+    }
+
+    static String hostKey(URI uri) {
+        int port = uri.getPort();
+        if (port < 0) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return uri.getHost() + ":" + port;
+    }
+
+    /**
+     * 一次请求占用的许可，响应体接收完毕、出错或被取消时归还，只归还一次
+     */
+    private static final class Exchange {
+
+        private final HostGate gate;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        Exchange(HostGate gate) {
+            this.gate = gate;
+        }
+
+        void finish(boolean success) {
+            if (finished.compareAndSet(false, true)) {
+                gate.release(System.nanoTime() - start, success);
+            }
+        }
+
+        <T> BodyHandler<T> wrap(BodyHandler<T> handler) {
+            return info -> new TrackingSubscriber<>(handler.apply(info), this);
+        }
+    }
+
+    private record TrackingSubscriber<T>(BodySubscriber<T> delegate, Exchange exchange) implements BodySubscriber<T> {
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    exchange.finish(false);
+                    subscription.cancel();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            delegate.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            exchange.finish(false);
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            exchange.finish(true);
+            delegate.onComplete();
+        }
+    }
+
+    private static final class Holder {
+        private static final SharedHttpClient INSTANCE = new SharedHttpClient(DEFAULT_MAX_PER_HOST,
+                Duration.ofSeconds(10));
+    }
+}
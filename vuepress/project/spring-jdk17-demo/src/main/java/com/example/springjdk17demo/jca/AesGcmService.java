@@ -0,0 +1,303 @@
+package com.example.springjdk17demo.jca;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-GCM 加解密
+ * <p>
+ * {@link Cipher#getInstance} 要查找 Provider，比加密一条短消息还慢，这里每个线程缓存一个 Cipher，每次只 init。
+ * 同一个 Cipher 连续用同一把密钥 init 时 JDK 不会重新展开密钥。
+ * <ul>
+ *     <li>单条消息：格式为 IV(12) + 密文 + tag(16)，直接在调用方的 {@link ByteBuffer} 之间加解密，不经过中间数组；
+ *     IV 随机生成，同一把密钥加密的消息数不应超过 2^32</li>
+ *     <li>大数据流：GCM 解密必须等到 tag 校验完才能输出明文，JDK 会把整个密文缓存在内存里，
+ *     {@link javax.crypto.CipherInputStream} 也是如此。这里把流切成 64KB 的段，每段单独加密并带 tag，
+ *     段 IV 为 7 字节随机前缀 + 4 字节段序号 + 1 字节末段标记，截断、重排或删段都会校验失败。
+ *     7 字节前缀按生日界约 2^28 个流就有可观的碰撞概率，所以与 Tink 的 AesGcmHkdfStreaming 一样，
+ *     每个流用 32 字节随机盐经 HKDF-SHA256 从主密钥派生一把子密钥，IV 只需在同一个流内唯一。
+ *     流头为 盐 + 前缀，共 {@link #STREAM_HEADER_LENGTH} 字节。读写都用线程缓存的直接内存缓冲</li>
+ * </ul>
+ * 线程安全。
+ */
+public class AesGcmService {
+
+    public static final int IV_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+    /**
+     * 流式加密时每段明文的字节数
+     */
+    public static final int SEGMENT_SIZE = 64 * 1024;
+    /**
+     * 流头长度：32 字节派生子密钥的盐 + 7 字节段 IV 前缀
+     */
+    public static final int STREAM_HEADER_LENGTH = 32 + 7;
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String HMAC = "HmacSHA256";
+    private static final int SALT_LENGTH = 32;
+    private static final int PREFIX_LENGTH = STREAM_HEADER_LENGTH - SALT_LENGTH;
+    private static final byte[] SUBKEY_INFO = "AesGcmService stream".getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private final SecretKey key;
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(AesGcmService::newCipher);
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(AesGcmService::newMac);
+    private final ThreadLocal<Segments> segments = ThreadLocal.withInitial(Segments::new);
+
+    public AesGcmService(SecretKey key) {
+        if (!"AES".equals(key.getAlgorithm())) {
+            throw new IllegalArgumentException("not an AES key: " + key.getAlgorithm());
+        }
+        this.key = key;
+    }
+
+    /**
+     * 生成 128、192 或 256 位的 AES 密钥
+     */
+    public static SecretKey generateKey(int bits) throws NoSuchAlgorithmException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(bits);
+        return generator.generateKey();
+    }
+
+    /**
+     * 单条消息加密后的长度
+     */
+    public static int encryptedLength(int plaintextLength) {
+        return IV_LENGTH + plaintextLength + TAG_LENGTH;
+    }
+
+    /**
+     * 流式加密后的长度
+     */
+    public static long streamEncryptedLength(long plaintextLength) {
+        long segmentCount = Math.max(1, (plaintextLength + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        return STREAM_HEADER_LENGTH + plaintextLength + segmentCount * TAG_LENGTH;
+    }
+
+    /**
+     * 加密 src 的剩余字节写入 dst，返回写入的字节数。dst 至少要有 {@link #encryptedLength} 的空间
+     */
+    public int encrypt(ByteBuffer src, ByteBuffer dst) throws GeneralSecurityException {
+        if (dst.remaining() < encryptedLength(src.remaining())) {
+            throw new ShortBufferException(
+                    "need " + encryptedLength(src.remaining()) + " bytes, remaining " + dst.remaining());
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.get().nextBytes(iv);
+        Cipher cipher = ciphers.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        dst.put(iv);
+        return IV_LENGTH + cipher.doFinal(src, dst);
+    }
+
+    /**
+     * 解密 src 的剩余字节写入 dst，返回明文长度，校验失败抛出 {@link AEADBadTagException}
+     */
+    public int decrypt(ByteBuffer src, ByteBuffer dst) throws GeneralSecurityException {
+        if (src.remaining() < IV_LENGTH + TAG_LENGTH) {
+            throw new AEADBadTagException("message too short: " + src.remaining() + " bytes");
+        }
+        byte[] iv = new byte[IV_LENGTH];
+        src.get(iv);
+        Cipher cipher = ciphers.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        return cipher.doFinal(src, dst);
+    }
+
+    public byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+        byte[] result = new byte[encryptedLength(plaintext.length)];
+        encrypt(ByteBuffer.wrap(plaintext), ByteBuffer.wrap(result));
+        return result;
+    }
+
+    public byte[] decrypt(byte[] message) throws GeneralSecurityException {
+        ByteBuffer dst = ByteBuffer.allocate(Math.max(0, message.length - IV_LENGTH - TAG_LENGTH));
+        decrypt(ByteBuffer.wrap(message), dst);
+        return dst.array();
+    }
+
+    /**
+     * 分段加密 in 中的全部数据写入 out，返回明文字节数。两个通道都不会被关闭
+     */
+    public long encrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        Segments buffers = segments.get();
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.get().nextBytes(salt);
+        RANDOM.get().nextBytes(iv);
+        writeFully(out, ByteBuffer.wrap(salt));
+        writeFully(out, ByteBuffer.wrap(iv, 0, PREFIX_LENGTH));
+        SecretKey subkey = streamKey(salt);
+
+        // 多读一个字节才知道当前段是不是最后一段
+        ByteBuffer plain = buffers.plain.clear().limit(SEGMENT_SIZE + 1);
+        long total = 0;
+        for (int index = 0; ; index++) {
+            boolean last = !fill(in, plain);
+            plain.flip();
+            int length = Math.min(plain.remaining(), SEGMENT_SIZE);
+            plain.limit(length);
+            sealSegment(subkey, iv, index, last, plain, buffers.sealed, out, Cipher.ENCRYPT_MODE);
+            total += length;
+            if (last) {
+                return total;
+            }
+            plain.limit(length + 1).position(length);
+            plain.compact().limit(SEGMENT_SIZE + 1);
+        }
+    }
+
+    /**
+     * 解密 {@link #encrypt(ReadableByteChannel, WritableByteChannel)} 的输出，每段校验通过后才写出明文，返回明文字节数
+     */
+    public long decrypt(ReadableByteChannel in, WritableByteChannel out) throws IOException, GeneralSecurityException {
+        Segments buffers = segments.get();
+        byte[] salt = new byte[SALT_LENGTH];
+        byte[] iv = new byte[IV_LENGTH];
+        if (!fill(in, ByteBuffer.wrap(salt)) || !fill(in, ByteBuffer.wrap(iv, 0, PREFIX_LENGTH))) {
+            throw new EOFException("stream header truncated");
+        }
+        SecretKey subkey = streamKey(salt);
+
+        int sealedSize = SEGMENT_SIZE + TAG_LENGTH;
+        ByteBuffer sealed = buffers.sealed.clear().limit(sealedSize + 1);
+        long total = 0;
+        for (int index = 0; ; index++) {
+            boolean last = !fill(in, sealed);
+            sealed.flip();
+            int length = Math.min(sealed.remaining(), sealedSize);
+            sealed.limit(length);
+            total += sealSegment(subkey, iv, index, last, sealed, buffers.plain, out, Cipher.DECRYPT_MODE);
+            if (last) {
+                return total;
+            }
+            sealed.limit(length + 1).position(length);
+            sealed.compact().limit(sealedSize + 1);
+        }
+    }
+
+    /**
+     * 由盐派生当前流的子密钥，长度与主密钥相同
+     */
+    private SecretKey streamKey(byte[] salt) throws GeneralSecurityException {
+        byte[] ikm = key.getEncoded();
+        if (ikm == null) {
+            throw new GeneralSecurityException("key material is not extractable");
+        }
+        try {
+            byte[] okm = hkdfSha256(macs.get(), ikm, salt, SUBKEY_INFO, ikm.length);
+            try {
+                return new SecretKeySpec(okm, "AES");
+            } finally {
+                Arrays.fill(okm, (byte) 0);
+            }
+        } finally {
+            Arrays.fill(ikm, (byte) 0);
+        }
+    }
+
+    /**
+     * RFC 5869 HKDF：extract 得到伪随机密钥，expand 到 length 字节
+     */
+    static byte[] hkdfSha256(Mac mac, byte[] ikm, byte[] salt, byte[] info, int length)
+            throws GeneralSecurityException {
+        mac.init(new SecretKeySpec(salt, HMAC));
+        byte[] prk = mac.doFinal(ikm);
+        mac.init(new SecretKeySpec(prk, HMAC));
+        Arrays.fill(prk, (byte) 0);
+        byte[] okm = new byte[length];
+        byte[] block = new byte[0];
+        for (int offset = 0, counter = 1; offset < length; counter++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            int n = Math.min(block.length, length - offset);
+            System.arraycopy(block, 0, okm, offset, n);
+            offset += n;
+        }
+        Arrays.fill(block, (byte) 0);
+        return okm;
+    }
+
+    /**
+     * 用段 IV 加密或解密 src 写出到 out，返回写出的字节数
+     */
+    private int sealSegment(SecretKey subkey, byte[] iv, int index, boolean last, ByteBuffer src, ByteBuffer dst,
+                            WritableByteChannel out, int mode) throws IOException, GeneralSecurityException {
+        iv[PREFIX_LENGTH] = (byte) (index >>> 24);
+        iv[PREFIX_LENGTH + 1] = (byte) (index >>> 16);
+        iv[PREFIX_LENGTH + 2] = (byte) (index >>> 8);
+        iv[PREFIX_LENGTH + 3] = (byte) index;
+        iv[IV_LENGTH - 1] = (byte) (last ? 1 : 0);
+        Cipher cipher = ciphers.get();
+        cipher.init(mode, subkey, new GCMParameterSpec(TAG_LENGTH * 8, iv));
+        dst.clear();
+        int n = cipher.doFinal(src, dst);
+        dst.flip();
+        writeFully(out, dst);
+        return n;
+    }
+
+    /**
+     * 读到 buffer 满或流结束，读满返回 true
+     */
+    private static boolean fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 线程缓存的段缓冲，各多留一个字节用于判断末段
+     */
+    private static final class Segments {
+
+        final ByteBuffer plain = ByteBuffer.allocateDirect(SEGMENT_SIZE + TAG_LENGTH + 1);
+        final ByteBuffer sealed = ByteBuffer.allocateDirect(SEGMENT_SIZE + TAG_LENGTH + 1);
+    }
+}
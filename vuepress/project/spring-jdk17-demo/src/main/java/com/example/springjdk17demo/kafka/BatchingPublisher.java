@@ -0,0 +1,178 @@
+package com.example.springjdk17demo.kafka;
+
+import com.example.springjdk17demo.concurrent.LongHistogram;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * 带背压的批量发送
+ * <p>
+ * 用信号量限制未确认的消息数，达到上限时 send 阻塞，生产速度超过 broker 时不会把 buffer.memory 撑满；
+ * 每条消息确认后统计发送延迟和失败数；累计发送到阈值时自动 flush。
+ * 底层 Producer 由调用方传入，测试时可以换成 MockProducer。
+ */
+public class BatchingPublisher<K, V> implements AutoCloseable {
+
+    /**
+     * 未确认消息数上限
+     */
+    public static final String MAX_IN_FLIGHT_CONFIG = "publisher.max.in.flight";
+
+    /**
+     * 累计发送多少条后自动 flush，0 表示不自动 flush
+     */
+    public static final String FLUSH_THRESHOLD_CONFIG = "publisher.flush.threshold";
+
+    static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
+
+    private final Producer<K, V> producer;
+    private final Semaphore permits;
+    private final int maxInFlight;
+    private final int flushThreshold;
+    private final AtomicInteger unflushed = new AtomicInteger();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongHistogram latencyMicros = new LongHistogram();
+
+    public BatchingPublisher(Producer<K, V> producer, int maxInFlight, int flushThreshold) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.producer = producer;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        this.flushThreshold = flushThreshold;
+    }
+
+    /**
+     * 按配置创建 KafkaProducer，publisher.* 配置由本类使用，其余交给 KafkaProducer，未配置的批量和压缩参数使用 {@link #defaults()}
+     */
+    public static <K, V> BatchingPublisher<K, V> create(Properties config, Serializer<K> keySerializer,
+                                                        Serializer<V> valueSerializer) {
+        Properties props = defaults();
+        props.putAll(config);
+        int maxInFlight = Integer.parseInt(String.valueOf(props.remove(MAX_IN_FLIGHT_CONFIG)));
+        int flushThreshold = Integer.parseInt(String.valueOf(props.remove(FLUSH_THRESHOLD_CONFIG)));
+        return new BatchingPublisher<>(new KafkaProducer<>(props, keySerializer, valueSerializer), maxInFlight,
+                flushThreshold);
+    }
+
+    /**
+     * 面向吞吐的默认配置：更大的批次、稍长的等待时间和 lz4 压缩
+     */
+    public static Properties defaults() {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(MAX_IN_FLIGHT_CONFIG, DEFAULT_MAX_IN_FLIGHT);
+        props.put(FLUSH_THRESHOLD_CONFIG, 0);
+        return props;
+    }
+
+    public Future<RecordMetadata> send(ProducerRecord<K, V> record) throws InterruptedException {
+        return send(record, null);
+    }
+
+    /**
+     * 发送一条消息，未确认消息数达到上限时阻塞等待
+     */
+    public Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) throws InterruptedException {
+        permits.acquire();
+        return doSend(record, callback);
+    }
+
+    /**
+     * 在 timeout 内拿不到发送许可则返回 null
+     */
+    public Future<RecordMetadata> trySend(ProducerRecord<K, V> record, Callback callback, Duration timeout)
+            throws InterruptedException {
+        if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return null;
+        }
+        return doSend(record, callback);
+    }
+
+    /**
+     * 立即发出缓冲中的消息并等待它们确认
+     */
+    public void flush() {
+        unflushed.set(0);
+        producer.flush();
+    }
+
+    public Metrics metrics() {
+        synchronized (latencyMicros) {
+            return new Metrics(sent.sum(), acked.sum(), failed.sum(), maxInFlight - permits.availablePermits(),
+                    latencyMicros.percentile(50), latencyMicros.percentile(99), latencyMicros.getStats().getMax());
+        }
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ofSeconds(30));
+    }
+
+    public void close(Duration timeout) {
+        try {
+            producer.flush();
+        } finally {
+            producer.close(timeout);
+        }
+    }
+
+    private Future<RecordMetadata> doSend(ProducerRecord<K, V> record, Callback callback) {
+        long start = System.nanoTime();
+        Future<RecordMetadata> future;
+        try {
+            future = producer.send(record, (metadata, exception) -> {
+                permits.release();
+                if (exception == null) {
+                    acked.increment();
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                    synchronized (latencyMicros) {
+                        latencyMicros.accept(micros);
+                    }
+                } else {
+                    failed.increment();
+                }
+                if (callback != null) {
+                    callback.onCompletion(metadata, exception);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 序列化失败等任何同步异常都不会再回调，许可要在这里归还
+            permits.release();
+            failed.increment();
+            throw e;
+        }
+        sent.increment();
+        if (flushThreshold > 0 && unflushed.incrementAndGet() >= flushThreshold) {
+            flush();
+        }
+        return future;
+    }
+
+    /**
+     * 发送统计，延迟单位为微秒
+     */
+    public record Metrics(long sent, long acked, long failed, int inFlight, long p50LatencyMicros,
+                          long p99LatencyMicros, long maxLatencyMicros) {
+
+    }
+}
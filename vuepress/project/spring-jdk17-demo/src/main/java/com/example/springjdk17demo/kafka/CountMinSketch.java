@@ -0,0 +1,93 @@
+package com.example.springjdk17demo.kafka;
+
+/**
+ * Count-Min Sketch
+ * <p>
+ * depth 行、每行 width 个计数器，每个元素在每行按各自的哈希落到一个计数器上，估算值取各行最小值。
+ * 估算值不会小于真实值，超出部分以高概率不超过 总数 * e / width。内存固定为 width * depth 个 long。
+ * 用 {@link #cell} 找到一次 add 改动的计数器，可以只把这些计数器写入状态存储，再用 {@link #setCounter} 恢复。
+ */
+public class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] counters;
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        if (width <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counters = new long[width * depth];
+    }
+
+    /**
+     * 累加并返回累加后的估算值
+     */
+    public long add(String item, long count) {
+        int h1 = item.hashCode();
+        int h2 = mix(h1);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int i = row * width + Math.floorMod(h1 + row * h2, width);
+            counters[i] += count;
+            estimate = Math.min(estimate, counters[i]);
+        }
+        total += count;
+        return estimate;
+    }
+
+    public long estimate(String item) {
+        int h1 = item.hashCode();
+        int h2 = mix(h1);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + Math.floorMod(h1 + row * h2, width)]);
+        }
+        return estimate;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * item 在第 row 行对应的计数器下标，范围 [0, width * depth)
+     */
+    public int cell(String item, int row) {
+        int h1 = item.hashCode();
+        return row * width + Math.floorMod(h1 + row * mix(h1), width);
+    }
+
+    public long counter(int cell) {
+        return counters[cell];
+    }
+
+    /**
+     * 直接设置一个计数器，用于从按计数器保存的状态恢复。每次 add 在每行恰好加一次，total 等于第一行之和
+     */
+    public void setCounter(int cell, long value) {
+        if (cell < width) {
+            total += value - counters[cell];
+        }
+        counters[cell] = value;
+    }
+
+    /**
+     * 由 String.hashCode 派生第二个哈希，保证为奇数，各行的位置相互独立
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
@@ -4,7 +4,6 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Properties;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 
 /**
@@ -20,15 +19,27 @@ public class KafkaConsumerExample {
         props.put("key.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
         props.put("value.deserializer", "org.apache.kafka.common.serialization.StringDeserializer");
 
-        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
-            consumer.subscribe(Arrays.asList("topic1", "topic2"));
-            while (true) {
-                ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(100));
-                for (ConsumerRecord<String, String> record : records) {
-                    System.out.println("Received message: " + record.value());
-                    // 处理消息的逻辑
+        props.put("enable.auto.commit", "false");
+
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
+             ParallelConsumer<String, String> engine = new ParallelConsumer<>(consumer, (partition, records) -> {
+                 for (ConsumerRecord<String, String> record : records) {
+                     System.out.println("Received message: " + record.value());
+                     // 处理消息的逻辑
+                 }
+             }, 4)) {
+            engine.subscribe(Arrays.asList("topic1", "topic2"));
+            Thread runThread = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                engine.stop();
+                // 钩子返回后 JVM 就退出了，要等 run 提交完 offset、关闭 consumer
+                try {
+                    runThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-            }
+            }));
+            engine.run(Duration.ofMillis(100));
         }
     }
 }
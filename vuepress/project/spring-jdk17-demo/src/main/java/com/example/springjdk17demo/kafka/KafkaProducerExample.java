@@ -1,6 +1,9 @@
 package com.example.springjdk17demo.kafka;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Properties;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -8,6 +11,7 @@ import org.apache.kafka.common.KafkaException;
 import org.apache.kafka.common.errors.AuthorizationException;
 import org.apache.kafka.common.errors.OutOfOrderSequenceException;
 import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 
 /**
@@ -50,6 +54,32 @@ public class KafkaProducerExample {
 
     }
 
+    /**
+     * 精确一次：从 input-topic 读取，转成大写写入 my-topic，每个事务最多 1000 条或 100 毫秒
+     */
+    private static void exactlyOnce() {
+        Properties consumerProps = new Properties();
+        consumerProps.put("bootstrap.servers", "localhost:9092");
+        consumerProps.put("group.id", "my-transactional-group");
+        consumerProps.put("isolation.level", "read_committed");
+        consumerProps.put("enable.auto.commit", "false");
+
+        Properties producerProps = new Properties();
+        producerProps.put("bootstrap.servers", "localhost:9092");
+        producerProps.put("transactional.id", "my-transactional-id");
+
+        KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps, new StringDeserializer(),
+                new StringDeserializer());
+        consumer.subscribe(List.of("input-topic"));
+        try (consumer; TransactionalPipeline<String, String, String, String> pipeline = new TransactionalPipeline<>(
+                consumer, () -> new KafkaProducer<>(producerProps, new StringSerializer(), new StringSerializer()),
+                record -> new ProducerRecord<>("my-topic", record.key(), record.value().toUpperCase()),
+                1000, Duration.ofMillis(100))) {
+            Runtime.getRuntime().addShutdownHook(new Thread(pipeline::stop));
+            pipeline.run(Duration.ofMillis(100));
+        }
+    }
+
     private static void sync() {
         Properties props = new Properties();
         props.put("bootstrap.servers", "localhost:9092");
@@ -74,28 +104,22 @@ public class KafkaProducerExample {
         producer.close();
     }
 
-    private static void batch() {
+    private static void batch() throws InterruptedException {
         Properties props = new Properties();
         props.put("bootstrap.servers", "localhost:9092");
-        props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        props.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        // 设置批量大小
-        props.put("batch.size", 16384);
-        // 设置等待时间
-        props.put("linger.ms", 10);
+        // 批量大小、等待时间、压缩等未配置的参数使用 BatchingPublisher.defaults()
+        props.put(BatchingPublisher.MAX_IN_FLIGHT_CONFIG, 1000);
 
-        Producer<String, String> producer = new KafkaProducer<>(props);
         String topic = "my-topic";
-
-        for (int i = 0; i < 1000; i++) {
-            String key = "key-" + i;
-            String value = "Message-" + i;
-            ProducerRecord<String, String> record = new ProducerRecord<>(topic, key, value);
-
-            producer.send(record);
+        try (BatchingPublisher<String, String> publisher = BatchingPublisher.create(props, new StringSerializer(),
+                new StringSerializer())) {
+            for (int i = 0; i < 1000; i++) {
+                String key = "key-" + i;
+                String value = "Message-" + i;
+                publisher.send(new ProducerRecord<>(topic, key, value));
+            }
+            publisher.flush();
+            System.out.println(publisher.metrics());
         }
-
-        producer.close();
     }
 }
-
@@ -1,10 +1,13 @@
 package com.example.springjdk17demo.kafka;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Properties;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.*;
 import org.apache.kafka.streams.kstream.*;
+import org.apache.kafka.streams.state.WindowStore;
 
 /**
  * @author John Li
@@ -15,7 +18,18 @@ public class KafkaStreamsExample {
         Properties props = new Properties();
         props.put(StreamsConfig.APPLICATION_ID_CONFIG, "my-streams-app");
         props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
 
+        try (KafkaStreams streams = new KafkaStreams(preAggregatedTopology(Duration.ofSeconds(1), 10_000), props)) {
+            streams.start();
+        }
+    }
+
+    /**
+     * 原来的写法：正则分词，每个单词都进入重分区主题
+     */
+    public static Topology topology() {
         StreamsBuilder builder = new StreamsBuilder();
         KStream<String, String> input = builder.stream("input-topic");
 
@@ -25,10 +39,58 @@ public class KafkaStreamsExample {
                 .count(Named.as("WordCountStore"));
 
         wordCountTable.toStream().to("output-topic",Produced.with(Serdes.String(), Serdes.Long()));
+        return builder.build();
+    }
 
-        try (KafkaStreams streams = new KafkaStreams(builder.build(), props)) {
-            streams.start();
-        }
+    /**
+     * 先在任务内分词并预聚合，定时把部分计数发往重分区主题，再按单词求和
+     *
+     * @param flushInterval 预聚合结果的输出间隔
+     * @param maxEntries    预聚合存储最多容纳的不同单词数，满了立即输出
+     */
+    public static Topology preAggregatedTopology(Duration flushInterval, int maxEntries) {
+        StreamsBuilder builder = new StreamsBuilder();
+        KStream<String, String> input = builder.stream("input-topic", Consumed.with(Serdes.String(), Serdes.String()));
+
+        builder.addStateStore(WordCountPreAggregator.storeBuilder("WordCountPreAggregateStore"));
+        KTable<String, Long> wordCountTable = input
+                .process(() -> new WordCountPreAggregator("WordCountPreAggregateStore", flushInterval, maxEntries),
+                        Named.as("WordCountPreAggregator"), "WordCountPreAggregateStore")
+                .groupByKey(Grouped.with(Serdes.String(), Serdes.Long()))
+                .reduce(Long::sum, Named.as("WordCountReduce"), Materialized.as("WordCountStore"));
+
+        wordCountTable.toStream().to("output-topic", Produced.with(Serdes.String(), Serdes.Long()));
+        return builder.build();
+    }
+
+    /**
+     * 跳跃窗口内的 Top-K 热词，每个窗口关闭后只输出一次，写入 trending-topic，key 为窗口起点，value 形如 word=count,word=count
+     * <p>
+     * 第一阶段在各输入分区内用 Count-Min Sketch + 小顶堆统计 2K 个候选，窗口关闭才输出，未关闭窗口的状态存在带 changelog 的存储中；
+     * 第二阶段按窗口起点汇总各分区的候选，存在带保留期的窗口存储中，等所有分区大概率都已上报（再等一个 size + grace）后抑制输出最终 Top-K。
+     * 状态和输出量只与窗口数、sketch 尺寸和 K 有关，与词汇量无关。
+     */
+    public static Topology trendingTopology(Duration size, Duration advance, Duration grace, int k) {
+        StreamsBuilder builder = new StreamsBuilder();
+        KStream<String, String> input = builder.stream("input-topic", Consumed.with(Serdes.String(), Serdes.String()));
+
+        int candidates = k * 2;
+        Duration mergeGrace = size.plus(grace);
+        builder.addStateStore(TrendingWordsProcessor.storeBuilder("TrendingWordsWindowStore"));
+        input.process(() -> new TrendingWordsProcessor("TrendingWordsWindowStore", size, advance, grace, candidates,
+                                2048, 4),
+                        Named.as("TrendingWordsCandidates"), "TrendingWordsWindowStore")
+                .groupByKey(Grouped.with(Serdes.Long(), Serdes.String()))
+                .windowedBy(TimeWindows.ofSizeAndGrace(advance, mergeGrace))
+                .reduce((left, right) -> TopK.merge(left, right, candidates), Named.as("TrendingWordsMerge"),
+                        Materialized.<Long, String, WindowStore<Bytes, byte[]>>as("TrendingWordsStore")
+                                .withRetention(advance.plus(mergeGrace)))
+                .suppress(Suppressed.untilWindowCloses(Suppressed.BufferConfig.unbounded()))
+                .toStream()
+                .map((window, candidatesOfWindow) -> KeyValue.pair(window.key(),
+                        TopK.encode(TopK.decode(candidatesOfWindow).stream().limit(k).toList())))
+                .to("trending-topic", Produced.with(Serdes.Long(), Serdes.String()));
+        return builder.build();
     }
 
 }
@@ -0,0 +1,289 @@
+package com.example.springjdk17demo.kafka;
+
+import com.example.springjdk17demo.concurrent.ThreadPools;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+/**
+ * 按分区并行处理的消费引擎
+ * <p>
+ * 每次 poll 的结果按分区拆成批次，同一分区的批次在工作线程上串行执行以保证分区内有序，不同分区并行。
+ * 批次处理完后把该分区的下一个 offset 记下来，由 poll 线程统一 commitAsync，不依赖自动提交，处理失败的批次不会被提交。
+ * 某个分区积压的批次超过 maxPendingBatches 时暂停拉取该分区，消化后再恢复。
+ * Consumer 本身只在调用 {@link #pollOnce(Duration)} / {@link #run(Duration)} 的线程上使用，测试时可以换成 MockConsumer。
+ */
+@Slf4j
+public class ParallelConsumer<K, V> implements AutoCloseable {
+
+    private final Consumer<K, V> consumer;
+    private final BatchHandler<K, V> handler;
+    private final ExecutorService workers;
+    private final boolean ownsWorkers;
+    private final int maxPendingBatches;
+
+    private final Map<TopicPartition, PartitionState> partitions = new HashMap<>();
+    private final Map<TopicPartition, OffsetAndMetadata> completed = new ConcurrentHashMap<>();
+    private final Set<TopicPartition> paused = new HashSet<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean running = true;
+
+    public ParallelConsumer(Consumer<K, V> consumer, BatchHandler<K, V> handler, int maxPendingBatches) {
+        this(consumer, handler, ThreadPools.newVirtualOrBounded(Runtime.getRuntime().availableProcessors(),
+                "partition-worker"), true, maxPendingBatches);
+    }
+
+    public ParallelConsumer(Consumer<K, V> consumer, BatchHandler<K, V> handler, ExecutorService workers,
+                            int maxPendingBatches) {
+        this(consumer, handler, workers, false, maxPendingBatches);
+    }
+
+    private ParallelConsumer(Consumer<K, V> consumer, BatchHandler<K, V> handler, ExecutorService workers,
+                             boolean ownsWorkers, int maxPendingBatches) {
+        if (maxPendingBatches <= 0) {
+            throw new IllegalArgumentException("maxPendingBatches must be positive: " + maxPendingBatches);
+        }
+        this.consumer = consumer;
+        this.handler = handler;
+        this.workers = workers;
+        this.ownsWorkers = ownsWorkers;
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    /**
+     * 订阅主题，分区被收回前会等待其在途批次处理完并同步提交
+     */
+    public void subscribe(Collection<String> topics) {
+        consumer.subscribe(topics, new ConsumerRebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<TopicPartition> revoked) {
+                drain(revoked, Duration.ofSeconds(30));
+                commitSync();
+                revoked.forEach(partitions::remove);
+                paused.removeAll(revoked);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<TopicPartition> assigned) {
+            }
+        });
+    }
+
+    /**
+     * 循环拉取直到 {@link #stop()}，退出前等待在途批次并同步提交
+     */
+    public void run(Duration pollTimeout) {
+        try {
+            while (running) {
+                pollOnce(pollTimeout);
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                throw e;
+            }
+        } finally {
+            drain(new ArrayList<>(partitions.keySet()), Duration.ofSeconds(30));
+            try {
+                commitSync();
+            } catch (WakeupException e) {
+                // stop() 在 poll 之外调用时唤醒标记还没被消费，会打断这次提交；标记只生效一次，重试即可
+                commitSync();
+            }
+        }
+    }
+
+    /**
+     * 拉取一次并分发，返回分发的消息数；之前有批次处理失败时抛出 {@link IllegalStateException}
+     */
+    public int pollOnce(Duration timeout) {
+        checkFailure();
+        commitCompleted();
+        resumeDrained();
+
+        ConsumerRecords<K, V> records = consumer.poll(timeout);
+        for (TopicPartition partition : records.partitions()) {
+            dispatch(partition, records.records(partition));
+        }
+        return records.count();
+    }
+
+    /**
+     * 让 {@link #run(Duration)} 退出，可在任意线程调用
+     */
+    public void stop() {
+        running = false;
+        consumer.wakeup();
+    }
+
+    /**
+     * 等待所有在途批次处理完
+     */
+    public void awaitIdle(Duration timeout) {
+        drain(new ArrayList<>(partitions.keySet()), timeout);
+        checkFailure();
+    }
+
+    public Set<TopicPartition> paused() {
+        return Set.copyOf(paused);
+    }
+
+    /**
+     * 同步提交已处理完的 offset，提交失败时 offset 留到下次提交
+     */
+    public void commitSync() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = takeCompleted();
+        if (offsets.isEmpty()) {
+            return;
+        }
+        try {
+            consumer.commitSync(offsets);
+        } catch (RuntimeException e) {
+            offsets.forEach(this::markCompleted);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            consumer.close();
+        } finally {
+            if (ownsWorkers) {
+                workers.shutdown();
+            }
+        }
+    }
+
+    private void dispatch(TopicPartition partition, List<ConsumerRecord<K, V>> batch) {
+        PartitionState state = partitions.computeIfAbsent(partition, p -> new PartitionState());
+        long nextOffset = batch.get(batch.size() - 1).offset() + 1;
+        state.pending.incrementAndGet();
+        state.tail = state.tail.thenRunAsync(() -> {
+            try {
+                handler.handle(partition, batch);
+                markCompleted(partition, new OffsetAndMetadata(nextOffset));
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                throw new CompletionException(e);
+            } finally {
+                state.pending.decrementAndGet();
+            }
+        }, workers);
+
+        if (state.pending.get() > maxPendingBatches && paused.add(partition)) {
+            consumer.pause(Set.of(partition));
+        }
+    }
+
+    private void resumeDrained() {
+        if (paused.isEmpty()) {
+            return;
+        }
+        List<TopicPartition> ready = new ArrayList<>();
+        for (TopicPartition partition : paused) {
+            PartitionState state = partitions.get(partition);
+            if (state == null || state.pending.get() <= maxPendingBatches / 2) {
+                ready.add(partition);
+            }
+        }
+        if (!ready.isEmpty()) {
+            ready.forEach(paused::remove);
+            consumer.resume(ready);
+        }
+    }
+
+    private void commitCompleted() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = takeCompleted();
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, (committed, exception) -> {
+                if (exception != null) {
+                    // 后续提交会带上更大的 offset，这里只记录
+                    log.warn("commit failed for {}", committed, exception);
+                }
+            });
+        }
+    }
+
+    private void markCompleted(TopicPartition partition, OffsetAndMetadata offset) {
+        completed.merge(partition, offset, (a, b) -> a.offset() >= b.offset() ? a : b);
+    }
+
+    /**
+     * 取出已处理完的 offset。收回时等待超时的分区，其批次可能在收回后才完成，这些 offset 直接丢弃，
+     * 否则会覆盖新的分区所有者提交的进度
+     */
+    private Map<TopicPartition, OffsetAndMetadata> takeCompleted() {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : completed.keySet()) {
+            OffsetAndMetadata offset = completed.remove(partition);
+            if (offset != null && partitions.containsKey(partition)) {
+                offsets.put(partition, offset);
+            }
+        }
+        return offsets;
+    }
+
+    private void drain(Collection<TopicPartition> toDrain, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (TopicPartition partition : toDrain) {
+            PartitionState state = partitions.get(partition);
+            if (state == null) {
+                continue;
+            }
+            try {
+                state.tail.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (TimeoutException e) {
+                log.warn("partition {} still has {} pending batches", partition, state.pending.get());
+            } catch (Exception e) {
+                // 失败已记录在 failure 中
+            }
+        }
+    }
+
+    private void checkFailure() {
+        Throwable e = failure.get();
+        if (e != null) {
+            throw new IllegalStateException("batch handler failed, offsets after the failed batch are not committed", e);
+        }
+    }
+
+    private static final class PartitionState {
+        /**
+         * 该分区最后一个批次，只在 poll 线程上读写
+         */
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private final AtomicInteger pending = new AtomicInteger();
+    }
+
+    /**
+     * 处理同一分区的一批消息，批次内消息按 offset 升序
+     */
+    @FunctionalInterface
+    public interface BatchHandler<K, V> {
+        void handle(TopicPartition partition, List<ConsumerRecord<K, V>> records) throws Exception;
+    }
+}
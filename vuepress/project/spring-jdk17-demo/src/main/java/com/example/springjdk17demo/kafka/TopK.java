@@ -0,0 +1,104 @@
+package com.example.springjdk17demo.kafka;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 固定容量的 Top-K，小顶堆存当前入选的单词，堆顶是入选者中计数最小的
+ * <p>
+ * 同一单词再次 offer 时更新计数；新单词只有计数超过堆顶时才挤掉堆顶。K 一般很小，更新时的线性删除可以接受。
+ * 还提供 "word=count,word=count" 形式的编解码，单词只含 [a-z0-9_]，不会与分隔符冲突。
+ */
+public class TopK {
+
+    private static final Comparator<WordCount> ASCENDING = Comparator.comparingLong(WordCount::count)
+            .thenComparing(WordCount::word, Comparator.reverseOrder());
+
+    private final int k;
+    private final PriorityQueue<WordCount> heap;
+    private final Map<String, WordCount> members = new HashMap<>();
+
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.k = k;
+        this.heap = new PriorityQueue<>(k, ASCENDING);
+    }
+
+    public void offer(String word, long count) {
+        WordCount current = members.get(word);
+        if (current != null) {
+            if (current.count() == count) {
+                return;
+            }
+            heap.remove(current);
+        } else if (heap.size() >= k) {
+            WordCount min = heap.peek();
+            if (ASCENDING.compare(new WordCount(word, count), min) <= 0) {
+                return;
+            }
+            heap.poll();
+            members.remove(min.word());
+        }
+        WordCount updated = new WordCount(word, count);
+        heap.add(updated);
+        members.put(word, updated);
+    }
+
+    /**
+     * 按计数从大到小排列
+     */
+    public List<WordCount> top() {
+        List<WordCount> list = new ArrayList<>(heap);
+        list.sort(ASCENDING.reversed());
+        return list;
+    }
+
+    public static String encode(List<WordCount> counts) {
+        StringBuilder sb = new StringBuilder();
+        for (WordCount wc : counts) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(wc.word()).append('=').append(wc.count());
+        }
+        return sb.toString();
+    }
+
+    public static List<WordCount> decode(String encoded) {
+        List<WordCount> counts = new ArrayList<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return counts;
+        }
+        for (String entry : encoded.split(",")) {
+            int eq = entry.lastIndexOf('=');
+            counts.add(new WordCount(entry.substring(0, eq), Long.parseLong(entry.substring(eq + 1))));
+        }
+        return counts;
+    }
+
+    /**
+     * 合并两组候选，同一单词计数相加，保留前 limit 个
+     */
+    public static String merge(String left, String right, int limit) {
+        Map<String, Long> sums = new HashMap<>();
+        for (WordCount wc : decode(left)) {
+            sums.merge(wc.word(), wc.count(), Long::sum);
+        }
+        for (WordCount wc : decode(right)) {
+            sums.merge(wc.word(), wc.count(), Long::sum);
+        }
+        TopK topK = new TopK(limit);
+        sums.forEach(topK::offer);
+        return encode(topK.top());
+    }
+
+    public record WordCount(String word, long count) {
+
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.springjdk17demo.kafka;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.errors.WakeupException;
+
+/**
+ * 精确一次的 消费-转换-生产 循环
+ * <p>
+ * 一个事务里包含多条消息：转换结果和消费 offset（{@link Producer#sendOffsetsToTransaction}）一起提交，
+ * 事务内消息数达到 maxRecords 或事务已持续 maxDuration 时提交。每个事务都有固定开销（事务标记、协调者往返），
+ * 攒批能把开销摊到很多消息上。
+ * <p>
+ * 提交失败时中止事务，把消费位置回退到事务开始处（每个分区第一条未提交消息的 offset），重新处理；transform 抛出异常时同样中止并回退，再把异常抛给调用方；遇到 {@link ProducerFencedException} 时当前 Producer 已不可用，
+ * 关闭后用 producerFactory 重建并 initTransactions，同样回退消费位置。Consumer 应设置 isolation.level=read_committed、
+ * enable.auto.commit=false；Consumer 和 Producer 都只在调用 {@link #pollOnce(Duration)} 的线程上使用。
+ */
+@Slf4j
+public class TransactionalPipeline<KI, VI, KO, VO> implements AutoCloseable {
+
+    private final Consumer<KI, VI> consumer;
+    private final Supplier<Producer<KO, VO>> producerFactory;
+    private final Function<ConsumerRecord<KI, VI>, ProducerRecord<KO, VO>> transform;
+    private final int maxRecords;
+    private final long maxDurationNanos;
+
+    private Producer<KO, VO> producer;
+    private final Map<TopicPartition, OffsetAndMetadata> pendingOffsets = new HashMap<>();
+    /**
+     * 每个分区已拉取但未提交的第一条消息的 offset，中止时回退到这里
+     */
+    private final Map<TopicPartition, Long> rewindOffsets = new HashMap<>();
+    private boolean inTransaction;
+    private int recordsInTransaction;
+    private long transactionStart;
+    private volatile boolean running = true;
+
+    private long committedTransactions;
+    private long committedRecords;
+    private long abortedTransactions;
+    private long fencedCount;
+
+    /**
+     * @param transform   把输入消息转换为输出消息，返回 null 表示丢弃
+     * @param maxRecords  单个事务最多包含的输入消息数
+     * @param maxDuration 单个事务最长持续时间
+     */
+    public TransactionalPipeline(Consumer<KI, VI> consumer, Supplier<Producer<KO, VO>> producerFactory,
+                                 Function<ConsumerRecord<KI, VI>, ProducerRecord<KO, VO>> transform, int maxRecords,
+                                 Duration maxDuration) {
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("maxRecords must be positive: " + maxRecords);
+        }
+        this.consumer = consumer;
+        this.producerFactory = producerFactory;
+        this.transform = transform;
+        this.maxRecords = maxRecords;
+        this.maxDurationNanos = maxDuration.toNanos();
+        this.producer = newProducer();
+    }
+
+    /**
+     * 循环处理直到 {@link #stop()}，退出前提交未完成的事务
+     */
+    public void run(Duration pollTimeout) {
+        try {
+            while (running) {
+                pollOnce(pollTimeout);
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                throw e;
+            }
+        }
+        commit();
+    }
+
+    public void stop() {
+        running = false;
+        consumer.wakeup();
+    }
+
+    /**
+     * 拉取一次并处理，返回本次处理的消息数
+     */
+    public int pollOnce(Duration timeout) {
+        ConsumerRecords<KI, VI> records = consumer.poll(timeout);
+        for (TopicPartition partition : records.partitions()) {
+            rewindOffsets.putIfAbsent(partition, records.records(partition).get(0).offset());
+        }
+        int processed = 0;
+        try {
+            for (ConsumerRecord<KI, VI> record : records) {
+                if (!inTransaction) {
+                    begin();
+                }
+                ProducerRecord<KO, VO> output = transform.apply(record);
+                if (output != null) {
+                    producer.send(output);
+                }
+                TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                pendingOffsets.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                recordsInTransaction++;
+                processed++;
+                if (recordsInTransaction >= maxRecords) {
+                    commitOrRecover();
+                }
+            }
+            if (inTransaction && System.nanoTime() - transactionStart >= maxDurationNanos) {
+                commitOrRecover();
+            }
+            if (!inTransaction) {
+                // 拉到的消息都已提交
+                rewindOffsets.clear();
+            }
+        } catch (ProducerFencedException e) {
+            recoverFromFencing(e);
+        } catch (KafkaException e) {
+            abortAndRewind(e);
+        } catch (RuntimeException e) {
+            // transform 抛出的异常交给调用方，但事务不能一直开着，否则下游 read_committed 的消费者会卡在这里直到事务超时
+            abortAndRewind(e);
+            throw e;
+        }
+        return processed;
+    }
+
+    /**
+     * 立即提交当前事务
+     */
+    public void commit() {
+        try {
+            commitOrRecover();
+        } catch (ProducerFencedException e) {
+            recoverFromFencing(e);
+        } catch (KafkaException e) {
+            abortAndRewind(e);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(committedTransactions, committedRecords, abortedTransactions, fencedCount);
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (inTransaction) {
+                producer.abortTransaction();
+                rewind();
+            }
+        } catch (KafkaException e) {
+            log.warn("abort on close failed", e);
+        } finally {
+            producer.close();
+        }
+    }
+
+    private void begin() {
+        producer.beginTransaction();
+        inTransaction = true;
+        recordsInTransaction = 0;
+        transactionStart = System.nanoTime();
+    }
+
+    private void commitOrRecover() {
+        if (!inTransaction) {
+            return;
+        }
+        producer.sendOffsetsToTransaction(new HashMap<>(pendingOffsets), consumer.groupMetadata());
+        producer.commitTransaction();
+        // 同一批中还没处理的消息从提交位置开始
+        pendingOffsets.forEach((partition, offset) -> rewindOffsets.put(partition, offset.offset()));
+        committedTransactions++;
+        committedRecords += recordsInTransaction;
+        endTransaction();
+    }
+
+    private void abortAndRewind(RuntimeException cause) {
+        log.warn("transaction aborted, rewinding {} records", recordsInTransaction, cause);
+        try {
+            if (inTransaction) {
+                producer.abortTransaction();
+            }
+        } catch (ProducerFencedException e) {
+            recoverFromFencing(e);
+            return;
+        }
+        abortedTransactions++;
+        rewind();
+        endTransaction();
+    }
+
+    private void recoverFromFencing(ProducerFencedException cause) {
+        log.warn("producer fenced, recreating it and rewinding {} records", recordsInTransaction, cause);
+        fencedCount++;
+        try {
+            producer.close(Duration.ZERO);
+        } catch (KafkaException e) {
+            log.debug("closing fenced producer failed", e);
+        }
+        rewind();
+        endTransaction();
+        producer = newProducer();
+    }
+
+    /**
+     * 回到事务开始处，已不再分配给本实例的分区不回退。不查消费组已提交的 offset：从未提交过的分区没有可回退的位置，
+     * 退回分区开头会无视 auto.offset.reset=latest，一次中止就重放整个分区
+     */
+    private void rewind() {
+        Set<TopicPartition> assignment = consumer.assignment();
+        rewindOffsets.forEach((partition, offset) -> {
+            if (assignment.contains(partition)) {
+                consumer.seek(partition, offset);
+            }
+        });
+        rewindOffsets.clear();
+    }
+
+    private void endTransaction() {
+        inTransaction = false;
+        recordsInTransaction = 0;
+        pendingOffsets.clear();
+    }
+
+    private Producer<KO, VO> newProducer() {
+        Producer<KO, VO> created = producerFactory.get();
+        created.initTransactions();
+        return created;
+    }
+
+    public record Stats(long committedTransactions, long committedRecords, long abortedTransactions, long fenced) {
+
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.springjdk17demo.kafka;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+/**
+ * 按跳跃窗口统计每个分区内的热词候选
+ * <p>
+ * 每个未关闭的窗口持有一个 {@link CountMinSketch} 和一个 {@link TopK}：单词计入 sketch，再用估算值更新 Top-K，
+ * 所以状态大小只与窗口数、sketch 尺寸和 K 有关，与词汇量无关。
+ * 窗口在流时间超过 窗口结束 + grace 后才关闭，关闭时输出一条记录：key 为窗口起点，value 为 {@link TopK#encode} 编码的候选，
+ * 时间戳为窗口起点。迟到到所有窗口都已关闭的记录直接丢弃。
+ * <p>
+ * 窗口状态保存在 {@link #storeBuilder(String)} 创建的 KeyValue 存储中，按计数器拆开存：
+ * key 为 窗口起点(8) + 'c' + 计数器下标(4) 时 value 是该计数器，为 窗口起点(8) + 't' 时 value 是编码后的候选；
+ * 流时间存在 key {@link #STREAM_TIME_KEY} 下。每个单词只改动每个窗口 depth 个计数器，处理记录时只写这几个 8 字节的值
+ * 和几十字节的候选，不整体序列化 sketch；存储的缓存再把一个提交周期内对同一计数器的多次写入合并成一次，
+ * 每个提交周期写入 changelog 的量不超过未关闭窗口的 sketch 总大小。窗口关闭时删除它的全部 key。
+ * 内存里的 TreeMap 与存储保持一致，实例迁移或重启后在 init 中从存储恢复。
+ */
+public class TrendingWordsProcessor implements Processor<String, String, Long, String> {
+
+    /**
+     * 窗口起点都不小于 0，大端编码后首字节不超过 0x7f，流时间用单字节 0xff 的 key 保存
+     */
+    static final Bytes STREAM_TIME_KEY = Bytes.wrap(new byte[]{(byte) 0xff});
+
+    private static final byte SKETCH_CELL = 'c';
+    private static final byte CANDIDATES = 't';
+
+    private final String storeName;
+    private final long size;
+    private final long advance;
+    private final long grace;
+    private final int candidates;
+    private final int sketchWidth;
+    private final int sketchDepth;
+
+    private final TreeMap<Long, WindowState> windows = new TreeMap<>();
+    private ProcessorContext<Long, String> context;
+    private KeyValueStore<Bytes, byte[]> store;
+    private long streamTime = Long.MIN_VALUE;
+    private long timestamp;
+
+    public TrendingWordsProcessor(String storeName, Duration size, Duration advance, Duration grace, int candidates,
+                                  int sketchWidth, int sketchDepth) {
+        this.storeName = storeName;
+        this.size = size.toMillis();
+        this.advance = advance.toMillis();
+        this.grace = grace.toMillis();
+        this.candidates = candidates;
+        this.sketchWidth = sketchWidth;
+        this.sketchDepth = sketchDepth;
+        if (this.advance <= 0 || this.advance > this.size) {
+            throw new IllegalArgumentException("advance must be in (0, size]");
+        }
+    }
+
+    /**
+     * 窗口状态存储，默认开启 changelog；开启缓存后同一窗口在一个提交周期内的多次写入只落盘一次
+     */
+    public static StoreBuilder<KeyValueStore<Bytes, byte[]>> storeBuilder(String name) {
+        return Stores.keyValueStoreBuilder(Stores.persistentKeyValueStore(name), Serdes.Bytes(), Serdes.ByteArray())
+                .withCachingEnabled();
+    }
+
+    @Override
+    public void init(ProcessorContext<Long, String> context) {
+        this.context = context;
+        this.store = context.getStateStore(storeName);
+        windows.clear();
+        try (KeyValueIterator<Bytes, byte[]> it = store.all()) {
+            while (it.hasNext()) {
+                KeyValue<Bytes, byte[]> entry = it.next();
+                if (entry.key.equals(STREAM_TIME_KEY)) {
+                    streamTime = ByteBuffer.wrap(entry.value).getLong();
+                    continue;
+                }
+                ByteBuffer key = ByteBuffer.wrap(entry.key.get());
+                WindowState state = window(key.getLong());
+                if (key.get() == SKETCH_CELL) {
+                    state.sketch.setCounter(key.getInt(), ByteBuffer.wrap(entry.value).getLong());
+                } else {
+                    TopK.decode(new String(entry.value, StandardCharsets.UTF_8))
+                            .forEach(wc -> state.topK.offer(wc.word(), wc.count()));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void process(Record<String, String> record) {
+        if (record.value() == null) {
+            return;
+        }
+        timestamp = record.timestamp();
+        if (timestamp > streamTime) {
+            streamTime = timestamp;
+            store.put(STREAM_TIME_KEY, ByteBuffer.allocate(Long.BYTES).putLong(streamTime).array());
+        }
+        WordTokenizer.forEachWord(record.value(), this::count);
+        for (Map.Entry<Long, WindowState> entry : windows.entrySet()) {
+            WindowState state = entry.getValue();
+            if (state.dirty) {
+                state.dirty = false;
+                store.put(key(entry.getKey(), CANDIDATES),
+                        TopK.encode(state.topK.top()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        closeExpired();
+    }
+
+    private void count(CharSequence text, int start, int end) {
+        String word = null;
+        long lastStart = timestamp - Math.floorMod(timestamp, advance);
+        for (long windowStart = lastStart; windowStart > timestamp - size && windowStart >= 0; windowStart -= advance) {
+            if (windowStart + size + grace <= streamTime) {
+                // 更早的窗口都已关闭
+                break;
+            }
+            if (word == null) {
+                word = WordTokenizer.lowerCase(text, start, end);
+            }
+            WindowState state = window(windowStart);
+            state.topK.offer(word, state.sketch.add(word, 1));
+            state.dirty = true;
+            for (int row = 0; row < sketchDepth; row++) {
+                int cell = state.sketch.cell(word, row);
+                store.put(cellKey(windowStart, cell),
+                        ByteBuffer.allocate(Long.BYTES).putLong(state.sketch.counter(cell)).array());
+            }
+        }
+    }
+
+    private WindowState window(long windowStart) {
+        return windows.computeIfAbsent(windowStart,
+                s -> new WindowState(new CountMinSketch(sketchWidth, sketchDepth), new TopK(candidates)));
+    }
+
+    private void closeExpired() {
+        Iterator<Map.Entry<Long, WindowState>> it = windows.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, WindowState> entry = it.next();
+            long windowStart = entry.getKey();
+            if (windowStart + size + grace > streamTime) {
+                break;
+            }
+            context.forward(new Record<>(windowStart, TopK.encode(entry.getValue().topK.top()), windowStart));
+            deleteWindow(windowStart);
+            it.remove();
+        }
+    }
+
+    /**
+     * 删除窗口的全部 key：从只有窗口起点的前缀到 窗口起点 + 0xff，先收集再删除
+     */
+    private void deleteWindow(long windowStart) {
+        List<Bytes> keys = new ArrayList<>();
+        Bytes to = Bytes.wrap(ByteBuffer.allocate(Long.BYTES + 1).putLong(windowStart).put((byte) 0xff).array());
+        try (KeyValueIterator<Bytes, byte[]> it = store.range(key(windowStart), to)) {
+            it.forEachRemaining(entry -> keys.add(entry.key));
+        }
+        keys.forEach(store::delete);
+    }
+
+    private static Bytes key(long windowStart) {
+        return Bytes.wrap(ByteBuffer.allocate(Long.BYTES).putLong(windowStart).array());
+    }
+
+    private static Bytes key(long windowStart, byte kind) {
+        return Bytes.wrap(ByteBuffer.allocate(Long.BYTES + 1).putLong(windowStart).put(kind).array());
+    }
+
+    private static Bytes cellKey(long windowStart, int cell) {
+        return Bytes.wrap(ByteBuffer.allocate(Long.BYTES + 1 + Integer.BYTES).putLong(windowStart).put(SKETCH_CELL)
+                .putInt(cell).array());
+    }
+
+    /**
+     * 一个窗口的状态，dirty 表示候选有变化、还没写回存储
+     */
+    private static final class WindowState {
+        private final CountMinSketch sketch;
+        private final TopK topK;
+        private boolean dirty;
+
+        WindowState(CountMinSketch sketch, TopK topK) {
+            this.sketch = sketch;
+            this.topK = topK;
+        }
+    }
+}
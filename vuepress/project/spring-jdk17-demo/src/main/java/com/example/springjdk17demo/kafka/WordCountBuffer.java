@@ -0,0 +1,91 @@
+package com.example.springjdk17demo.kafka;
+
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 有界的单词计数缓冲
+ * <p>
+ * 开放寻址哈希表，直接对原文中的字符区间按小写计算哈希并比较，已存在的单词只做计数加一，不创建 String；
+ * 只有第一次出现的单词才分配 key。表容量固定为 maxEntries 的两倍以上，装满前探测链不会太长；
+ * 装满后再加入新单词会抛出 {@link IllegalStateException}，调用方应在 {@link #isFull()} 时先 {@link #drain}。
+ */
+public class WordCountBuffer implements WordTokenizer.WordSink {
+
+    private final int maxEntries;
+    private final String[] keys;
+    private final int[] hashes;
+    private final long[] counts;
+    private int size;
+
+    public WordCountBuffer(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        int capacity = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new long[capacity];
+    }
+
+    @Override
+    public void accept(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + WordTokenizer.toLower(text.charAt(i));
+        }
+        hash ^= hash >>> 16;
+        int mask = keys.length - 1;
+        int i = hash & mask;
+        while (keys[i] != null) {
+            if (hashes[i] == hash && matches(keys[i], text, start, end)) {
+                counts[i]++;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (size >= maxEntries) {
+            throw new IllegalStateException("buffer is full, drain it first");
+        }
+        keys[i] = WordTokenizer.lowerCase(text, start, end);
+        hashes[i] = hash;
+        counts[i] = 1;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size >= maxEntries;
+    }
+
+    /**
+     * 输出全部部分计数并清空
+     */
+    public void drain(ObjLongConsumer<String> sink) {
+        if (size == 0) {
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                sink.accept(keys[i], counts[i]);
+                keys[i] = null;
+            }
+        }
+        size = 0;
+    }
+
+    private static boolean matches(String key, CharSequence text, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (key.charAt(i - start) != WordTokenizer.toLower(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.springjdk17demo.kafka;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 不用正则的分词
+ * <p>
+ * 与 {@code text.toLowerCase().split("\\W+")} 切分规则相同：ASCII 字母、数字、下划线为单词字符，其余都是分隔符，
+ * 但不会产生开头的空串。逐字符扫描，只把单词的起止下标交给 {@link WordSink}，由调用方决定是否需要生成 String。
+ */
+public class WordTokenizer {
+
+    private WordTokenizer() {
+    }
+
+    public static void forEachWord(CharSequence text, WordSink sink) {
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i < length; i++) {
+            if (isWordChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                sink.accept(text, start, i);
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            sink.accept(text, start, length);
+        }
+    }
+
+    /**
+     * 返回小写单词列表，便于与原来的 split 写法对照
+     */
+    public static List<String> words(CharSequence text) {
+        List<String> words = new ArrayList<>();
+        forEachWord(text, (t, start, end) -> words.add(lowerCase(t, start, end)));
+        return words;
+    }
+
+    static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    static char toLower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    static String lowerCase(CharSequence text, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            chars[i - start] = toLower(text.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 接收 text 中 [start, end) 区间的一个单词
+     */
+    @FunctionalInterface
+    public interface WordSink {
+        void accept(CharSequence text, int start, int end);
+    }
+}
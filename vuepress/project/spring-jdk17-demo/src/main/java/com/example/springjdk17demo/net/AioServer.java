@@ -0,0 +1,300 @@
+package com.example.springjdk17demo.net;
+
+import com.example.springjdk17demo.concurrent.ThreadPools;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.InterruptedByTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于 AIO 的服务器，协议与 {@link NioServer} 相同
+ * <p>
+ * 所有回调运行在显式创建的 {@link AsynchronousChannelGroup} 上，线程数默认等于 CPU 核数，回调里不做任何阻塞操作。
+ * 每个连接同一时刻最多一个读、一个写在进行：读完成后分帧处理，应答排入该连接的 {@link OutboundQueue}，
+ * 没有写在进行时发起 gather write，写完成的回调接着写剩余部分。积压超过 {@link NioServer#HIGH_WATER_MARK}
+ * 时不再发起读，写完后恢复。读缓冲取自 {@link BufferPool}，读超过 idleTimeout 没有数据时关闭连接。
+ */
+@Slf4j
+public class AioServer implements Closeable {
+
+    private final InetSocketAddress address;
+    private final int threads;
+    private final Framing framing;
+    private final FrameHandler handler;
+    private final long idleTimeoutMillis;
+    private final BufferPool pool;
+    private final AtomicLong accepted = new AtomicLong();
+
+    private AsynchronousChannelGroup group;
+    private AsynchronousServerSocketChannel serverChannel;
+
+    public AioServer(InetSocketAddress address, LineHandler handler) {
+        this(address, Runtime.getRuntime().availableProcessors(), Framing.lines(NioServer.BUFFER_SIZE - 2),
+                FrameHandler.of(handler), Duration.ofMinutes(1));
+    }
+
+    public AioServer(InetSocketAddress address, int threads, Framing framing, FrameHandler handler,
+                     Duration idleTimeout) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.address = address;
+        this.threads = threads;
+        this.framing = framing;
+        this.handler = handler;
+        this.idleTimeoutMillis = idleTimeout.toMillis();
+        this.pool = new BufferPool(Math.max(NioServer.BUFFER_SIZE, framing.maxFrameBytes()), 4096);
+    }
+
+    public AioServer start() throws IOException {
+        group = AsynchronousChannelGroup.withFixedThreadPool(threads, ThreadPools.namedDaemon("aio"));
+        serverChannel = AsynchronousServerSocketChannel.open(group).bind(address, 1024);
+        serverChannel.accept(null, new CompletionHandler<AsynchronousSocketChannel, Void>() {
+            @Override
+            public void completed(AsynchronousSocketChannel channel, Void attachment) {
+                serverChannel.accept(null, this);
+                accepted.incrementAndGet();
+                try {
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                } catch (IOException e) {
+                    log.debug("set TCP_NODELAY failed", e);
+                }
+                new Connection(channel).start();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                if (serverChannel.isOpen()) {
+                    log.warn("accept failed", exc);
+                    serverChannel.accept(null, this);
+                }
+            }
+        });
+        return this;
+    }
+
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * 累计接受的连接数
+     */
+    public long acceptedConnections() {
+        return accepted.get();
+    }
+
+    public BufferPool getBufferPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (group == null) {
+            return;
+        }
+        serverChannel.close();
+        group.shutdownNow();
+        try {
+            group.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 单个连接，out 和状态字段由 this 保护。读缓冲同一时刻只有一个使用者：进行中的读及其回调，
+     * 或暂停读后恢复处理的写回调，由 inBusy 标记；连接关闭时由最后一个使用者把它还给缓冲池
+     */
+    private final class Connection {
+
+        private final AsynchronousSocketChannel channel;
+        /**
+         * 写模式：尚未处理的请求字节
+         */
+        private final ByteBuffer in;
+        private final OutboundQueue out = new OutboundQueue();
+        private boolean inBusy;
+        private boolean writing;
+        private boolean readPaused;
+        private boolean eof;
+        private boolean closed;
+
+        private final CompletionHandler<Integer, Void> onRead = new CompletionHandler<>() {
+            @Override
+            public void completed(Integer n, Void attachment) {
+                if (n < 0) {
+                    boolean idle;
+                    synchronized (Connection.this) {
+                        eof = true;
+                        idle = !writing;
+                    }
+                    releaseIn();
+                    if (idle) {
+                        close();
+                    }
+                    return;
+                }
+                processAndRead();
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                if (!(exc instanceof InterruptedByTimeoutException)) {
+                    log.debug("read failed: {}", exc.toString());
+                }
+                releaseIn();
+                close();
+            }
+        };
+
+        private final CompletionHandler<Long, Void> onWrite = new CompletionHandler<>() {
+            @Override
+            public void completed(Long n, Void attachment) {
+                boolean resume = false;
+                boolean finished = false;
+                synchronized (Connection.this) {
+                    if (closed) {
+                        return;
+                    }
+                    out.written(n);
+                    if (!out.isEmpty()) {
+                        writeLocked();
+                        return;
+                    }
+                    writing = false;
+                    if (eof) {
+                        finished = true;
+                    } else if (readPaused) {
+                        readPaused = false;
+                        inBusy = true;
+                        resume = true;
+                    }
+                }
+                if (finished) {
+                    close();
+                } else if (resume) {
+                    processAndRead();
+                }
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                log.debug("write failed: {}", exc.toString());
+                close();
+            }
+        };
+
+        Connection(AsynchronousSocketChannel channel) {
+            this.channel = channel;
+            this.in = pool.acquire();
+        }
+
+        void start() {
+            synchronized (this) {
+                inBusy = true;
+            }
+            read();
+        }
+
+        private void read() {
+            channel.read(in, idleTimeoutMillis, TimeUnit.MILLISECONDS, null, onRead);
+        }
+
+        /**
+         * 处理读缓冲中的完整帧，输出积压时暂停读取，否则发起下一次读
+         */
+        private void processAndRead() {
+            in.flip();
+            try {
+                ByteBuffer frame;
+                while (pending() < NioServer.HIGH_WATER_MARK && (frame = framing.decode(in)) != null) {
+                    ByteBuffer reply = handler.handle(frame);
+                    if (reply != null) {
+                        synchronized (this) {
+                            framing.encode(reply, out);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("decode failed: {}", e.getMessage());
+                releaseIn();
+                close();
+                return;
+            }
+            in.compact();
+            boolean pause;
+            synchronized (this) {
+                if (!closed && !writing && !out.isEmpty()) {
+                    writing = true;
+                    writeLocked();
+                }
+                pause = closed || out.remaining() >= NioServer.HIGH_WATER_MARK;
+                readPaused = pause && !closed;
+            }
+            if (pause) {
+                releaseIn();
+                return;
+            }
+            if (!in.hasRemaining()) {
+                log.debug("frame exceeds {} bytes", in.capacity());
+                releaseIn();
+                close();
+                return;
+            }
+            read();
+        }
+
+        private synchronized long pending() {
+            return out.remaining();
+        }
+
+        private void writeLocked() {
+            channel.write(out.array(), out.offset(), out.length(), idleTimeoutMillis, TimeUnit.MILLISECONDS, null,
+                    onWrite);
+        }
+
+        /**
+         * 读缓冲的使用者放弃使用权，连接已关闭时归还缓冲
+         */
+        private void releaseIn() {
+            synchronized (this) {
+                inBusy = false;
+                if (!closed) {
+                    return;
+                }
+            }
+            pool.release(in);
+        }
+
+        void close() {
+            boolean release;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                out.clear();
+                release = !inBusy;
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("close failed", e);
+            }
+            if (release) {
+                pool.release(in);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.springjdk17demo.net;
+
+import com.example.springjdk17demo.concurrent.ThreadPools;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 每个连接一个线程的阻塞式行协议服务器
+ * <p>
+ * 支持虚拟线程时每个连接一个虚拟线程，连接数只受文件句柄限制；在 JDK 17 上退回 maxThreads 个平台线程，
+ * 超出的连接排队等待空闲线程。读写都经过 8KB 缓冲，连续到达的多行请求（pipelining）处理完一批才 flush 一次。
+ */
+@Slf4j
+public class BlockingServer implements Closeable {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final InetSocketAddress address;
+    private final LineHandler handler;
+    private final ExecutorService executor;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    public BlockingServer(InetSocketAddress address, int maxThreads, LineHandler handler) {
+        this.address = address;
+        this.handler = handler;
+        this.executor = ThreadPools.newVirtualOrBounded(maxThreads, "blocking-server");
+    }
+
+    public BlockingServer start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address, 1024);
+        acceptor = ThreadPools.namedDaemon("blocking-acceptor").newThread(this::acceptLoop);
+        acceptor.start();
+        return this;
+    }
+
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    /**
+     * 是否每个连接一个虚拟线程
+     */
+    public static boolean isVirtual() {
+        return ThreadPools.virtualThreadsAvailable();
+    }
+
+    /**
+     * 累计接受的连接数
+     */
+    public long acceptedConnections() {
+        return accepted.get();
+    }
+
+    /**
+     * 正在处理的连接数，不含排队等待线程的连接
+     */
+    public int activeConnections() {
+        return active.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverSocket == null) {
+            return;
+        }
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            closeQuietly(socket);
+        }
+        executor.shutdownNow();
+        try {
+            acceptor.join();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                accepted.incrementAndGet();
+                sockets.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (RejectedExecutionException | SocketException e) {
+                log.debug("acceptor stopped: {}", e.getMessage());
+                return;
+            } catch (IOException e) {
+                log.warn("accept failed", e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        active.incrementAndGet();
+        try (socket;
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(handler.handle(line));
+                writer.write('\n');
+                // 还有已到达的请求就先不 flush，一批应答一起写出
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("connection closed: {}", e.getMessage());
+        } finally {
+            sockets.remove(socket);
+            active.decrementAndGet();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("close failed", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.springjdk17demo.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 以分隔符结尾的帧
+ */
+final class DelimiterFraming implements Framing {
+
+    private final byte[] delimiter;
+    private final ByteBuffer delimiterBuffer;
+    private final int maxFrameLength;
+    /**
+     * 去掉帧内容末尾的 \r，用于兼容 \r\n 行尾
+     */
+    private final boolean stripCarriageReturn;
+
+    DelimiterFraming(byte[] delimiter, int maxFrameLength, boolean stripCarriageReturn) {
+        if (delimiter.length == 0 || maxFrameLength <= 0) {
+            throw new IllegalArgumentException("delimiter must not be empty and maxFrameLength must be positive");
+        }
+        this.delimiter = delimiter.clone();
+        this.delimiterBuffer = ByteBuffer.wrap(this.delimiter).asReadOnlyBuffer();
+        this.maxFrameLength = maxFrameLength;
+        this.stripCarriageReturn = stripCarriageReturn;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int last = in.limit() - delimiter.length;
+        byte first = delimiter[0];
+        for (int i = start; i <= last; i++) {
+            if (in.get(i) == first && matches(in, i)) {
+                int end = i;
+                if (stripCarriageReturn && end > start && in.get(end - 1) == '\r') {
+                    end--;
+                }
+                if (end - start > maxFrameLength) {
+                    throw new IOException("frame exceeds " + maxFrameLength + " bytes");
+                }
+                in.position(i + delimiter.length);
+                return in.slice(start, end - start);
+            }
+        }
+        if (in.remaining() > maxFrameBytes()) {
+            throw new IOException("frame exceeds " + maxFrameLength + " bytes");
+        }
+        return null;
+    }
+
+    private boolean matches(ByteBuffer in, int index) {
+        for (int k = 1; k < delimiter.length; k++) {
+            if (in.get(index + k) != delimiter[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void encode(ByteBuffer payload, OutboundQueue out) {
+        out.add(payload);
+        out.add(delimiterBuffer.duplicate());
+    }
+
+    @Override
+    public int maxFrameBytes() {
+        return maxFrameLength + (stripCarriageReturn ? 1 : 0) + delimiter.length;
+    }
+}
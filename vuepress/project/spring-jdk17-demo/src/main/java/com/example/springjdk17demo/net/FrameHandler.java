@@ -0,0 +1,52 @@
+package com.example.springjdk17demo.net;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 按帧的请求处理
+ */
+@FunctionalInterface
+public interface FrameHandler {
+
+    /**
+     * 处理一帧请求
+     *
+     * @param frame 读缓冲的切片，只在本次调用内有效
+     * @return 应答内容，不需要应答时返回 null。返回值会排队等待写出，不能引用 frame
+     */
+    ByteBuffer handle(ByteBuffer frame);
+
+    /**
+     * 把帧按 UTF-8 解码为字符串交给 {@link LineHandler}
+     */
+    static FrameHandler of(LineHandler handler) {
+        return frame -> {
+            byte[] bytes = new byte[frame.remaining()];
+            frame.get(bytes);
+            String reply = handler.handle(new String(bytes, StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(reply.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    /**
+     * {@link LineHandler#MEAT} 的字节版本：直接比较字节前缀，应答是预先编码好的只读缓冲，不解码也不分配字节数组
+     */
+    static FrameHandler meat() {
+        byte[] prefix = "我要吃肉".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer yes = ByteBuffer.wrap("地主家没有余粮了".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        ByteBuffer no = ByteBuffer.wrap("我不知道你在说什么".getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+        return frame -> {
+            if (frame.remaining() < prefix.length) {
+                return no.duplicate();
+            }
+            int start = frame.position();
+            for (int i = 0; i < prefix.length; i++) {
+                if (frame.get(start + i) != prefix[i]) {
+                    return no.duplicate();
+                }
+            }
+            return yes.duplicate();
+        };
+    }
+}
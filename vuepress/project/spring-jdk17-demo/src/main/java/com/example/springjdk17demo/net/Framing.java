@@ -0,0 +1,55 @@
+package com.example.springjdk17demo.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 字节流分帧
+ * <p>
+ * 一次 read 读到的字节可能只是半帧，也可能包含多帧。连接把读到的字节累积在一个可复用的缓冲里，
+ * 反复调用 {@link #decode(ByteBuffer)} 取出完整的帧，帧是缓冲的切片，不复制数据；
+ * 回复用 {@link #encode(ByteBuffer, OutboundQueue)} 拆成帧头、内容、帧尾几段，由 {@link OutboundQueue} 一次 gather write 写出。
+ * 实现无状态，可以在连接间共享。
+ */
+public interface Framing {
+
+    /**
+     * 从 in（读模式）的 position 处解出一帧
+     *
+     * @return 帧内容的切片，position 移到帧之后；数据不足一帧时返回 null，position 不变。切片在缓冲被 compact 之前有效
+     * @throws IOException 帧超过最大长度
+     */
+    ByteBuffer decode(ByteBuffer in) throws IOException;
+
+    /**
+     * 把 payload 编码为一帧追加到 out，payload 本身不复制
+     */
+    void encode(ByteBuffer payload, OutboundQueue out);
+
+    /**
+     * 帧（含帧头帧尾）的最大字节数，读缓冲至少要这么大
+     */
+    int maxFrameBytes();
+
+    /**
+     * 4 字节大端长度前缀
+     */
+    static Framing lengthPrefixed(int maxFrameLength) {
+        return new LengthPrefixedFraming(maxFrameLength);
+    }
+
+    /**
+     * 以 delimiter 结尾的帧，帧内容不含分隔符
+     */
+    static Framing delimited(byte[] delimiter, int maxFrameLength) {
+        return new DelimiterFraming(delimiter, maxFrameLength, false);
+    }
+
+    /**
+     * 按行分帧，兼容 \n 和 \r\n，帧内容不含行尾
+     */
+    static Framing lines(int maxLineLength) {
+        return new DelimiterFraming("\n".getBytes(StandardCharsets.US_ASCII), maxLineLength, true);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.springjdk17demo.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 4 字节大端长度前缀 + 内容
+ */
+final class LengthPrefixedFraming implements Framing {
+
+    static final int HEADER_BYTES = Integer.BYTES;
+
+    private final int maxFrameLength;
+
+    LengthPrefixedFraming(int maxFrameLength) {
+        if (maxFrameLength <= 0) {
+            throw new IllegalArgumentException("maxFrameLength must be positive: " + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer in) throws IOException {
+        if (in.remaining() < HEADER_BYTES) {
+            return null;
+        }
+        int start = in.position();
+        int length = in.getInt(start);
+        if (length < 0 || length > maxFrameLength) {
+            throw new IOException("invalid frame length " + length + ", max " + maxFrameLength);
+        }
+        if (in.remaining() < HEADER_BYTES + length) {
+            return null;
+        }
+        in.position(start + HEADER_BYTES + length);
+        return in.slice(start + HEADER_BYTES, length);
+    }
+
+    @Override
+    public void encode(ByteBuffer payload, OutboundQueue out) {
+        if (payload.remaining() > maxFrameLength) {
+            throw new IllegalArgumentException("frame length " + payload.remaining() + " exceeds " + maxFrameLength);
+        }
+        out.add(ByteBuffer.allocate(HEADER_BYTES).putInt(0, payload.remaining()));
+        out.add(payload);
+    }
+
+    @Override
+    public int maxFrameBytes() {
+        return HEADER_BYTES + maxFrameLength;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.springjdk17demo.net;
+
+/**
+ * 按行的请求处理：每收到一行请求返回一行应答，行尾换行符由服务器处理
+ */
+@FunctionalInterface
+public interface LineHandler {
+
+    /**
+     * SocketTest 中的“我要吃肉”协议
+     */
+    LineHandler MEAT = line -> line.startsWith("我要吃肉") ? "地主家没有余粮了" : "我不知道你在说什么";
+
+    /**
+     * 处理一行请求，不含行尾的 \r\n
+     *
+     * @return 应答，不含换行符
+     */
+    String handle(String line);
+}
@@ -0,0 +1,351 @@
+package com.example.springjdk17demo.net;
+
+import com.example.springjdk17demo.concurrent.ThreadPools;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 多 Reactor 的 NIO 服务器
+ * <p>
+ * 一个 acceptor 线程只负责 accept，新连接轮流分给 N 个 worker，每个 worker 有自己的 Selector，
+ * 连接此后的读写都在这个 worker 线程上完成，不需要加锁。
+ * <ul>
+ *     <li>连接保持打开，一个连接上可以连续发送多个请求（pipelining），按顺序应答</li>
+ *     <li>按 {@link Framing} 分帧，默认按行；读缓冲取自 {@link BufferPool} 的直接内存，关闭连接时归还</li>
+ *     <li>应答排入 {@link OutboundQueue} 用 gather write 写出，写不完时注册 OP_WRITE 等待可写；
+ *     积压超过 {@link #HIGH_WATER_MARK} 时暂停读取，未处理的请求留在读缓冲里</li>
+ *     <li>超过 idleTimeout 没有读写的连接会被关闭</li>
+ * </ul>
+ */
+@Slf4j
+public class NioServer implements Closeable {
+
+    public static final int BUFFER_SIZE = 8 * 1024;
+    /**
+     * 单个连接待写出的字节数超过该值时暂停处理请求
+     */
+    public static final int HIGH_WATER_MARK = 64 * 1024;
+
+    private static final int BACKLOG = 1024;
+    private static final long IDLE_CHECK_MILLIS = 1000;
+
+    private final InetSocketAddress address;
+    private final Framing framing;
+    private final FrameHandler handler;
+    private final long idleTimeoutNanos;
+    private final BufferPool pool;
+    private final Worker[] workers;
+    private final AtomicLong accepted = new AtomicLong();
+
+    private ServerSocketChannel serverChannel;
+    private Selector acceptSelector;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public NioServer(InetSocketAddress address, LineHandler handler) {
+        this(address, Runtime.getRuntime().availableProcessors(), handler, Duration.ofMinutes(1));
+    }
+
+    public NioServer(InetSocketAddress address, int workerCount, LineHandler handler, Duration idleTimeout) {
+        this(address, workerCount, Framing.lines(BUFFER_SIZE - 2), FrameHandler.of(handler), idleTimeout);
+    }
+
+    public NioServer(InetSocketAddress address, int workerCount, Framing framing, FrameHandler handler,
+                     Duration idleTimeout) {
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+        this.address = address;
+        this.framing = framing;
+        this.handler = handler;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.pool = new BufferPool(Math.max(BUFFER_SIZE, framing.maxFrameBytes()), 4096);
+        this.workers = new Worker[workerCount];
+    }
+
+    public NioServer start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address, BACKLOG);
+        acceptSelector = Selector.open();
+        serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        ThreadFactory factory = ThreadPools.namedDaemon("nio-worker");
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(Selector.open());
+            workers[i].thread = factory.newThread(workers[i]);
+            workers[i].thread.start();
+        }
+        acceptor = ThreadPools.namedDaemon("nio-acceptor").newThread(this::acceptLoop);
+        acceptor.start();
+        return this;
+    }
+
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * 累计接受的连接数
+     */
+    public long acceptedConnections() {
+        return accepted.get();
+    }
+
+    public BufferPool getBufferPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (acceptSelector == null) {
+            return;
+        }
+        acceptSelector.wakeup();
+        for (Worker worker : workers) {
+            worker.selector.wakeup();
+        }
+        try {
+            acceptor.join();
+            for (Worker worker : workers) {
+                worker.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        serverChannel.close();
+        acceptSelector.close();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                SocketChannel channel;
+                // 一次唤醒把积压的连接全部取走
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    accepted.incrementAndGet();
+                    workers[next].register(channel);
+                    next = (next + 1) % workers.length;
+                }
+            } catch (IOException e) {
+                if (running) {
+                    log.warn("accept failed", e);
+                }
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private Thread thread;
+        private long lastIdleCheck = System.nanoTime();
+
+        Worker(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(IDLE_CHECK_MILLIS);
+                } catch (IOException e) {
+                    log.error("select failed", e);
+                    break;
+                }
+                registerPending();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    } catch (IOException e) {
+                        log.debug("connection closed: {}", e.getMessage());
+                        connection.close();
+                    }
+                }
+                closeIdle();
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((Connection) key.attachment()).close();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("close selector failed", e);
+            }
+        }
+
+        private void registerPending() {
+            SocketChannel channel;
+            while ((channel = pending.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new Connection(channel, key));
+                } catch (IOException e) {
+                    log.warn("register failed", e);
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        private void closeIdle() {
+            long now = System.nanoTime();
+            if (now - lastIdleCheck < IDLE_CHECK_MILLIS * 1_000_000) {
+                return;
+            }
+            lastIdleCheck = now;
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (now - connection.lastActive > idleTimeoutNanos) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个连接的状态，只在所属 worker 线程上访问
+     */
+    private final class Connection {
+
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        /**
+         * 写模式：尚未处理的请求字节
+         */
+        private final ByteBuffer in;
+        private final OutboundQueue out = new OutboundQueue();
+        private boolean eof;
+        private boolean closed;
+        private long lastActive = System.nanoTime();
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+            this.in = pool.acquire();
+        }
+
+        void onReadable() throws IOException {
+            int n = channel.read(in);
+            if (n < 0) {
+                eof = true;
+            } else {
+                lastActive = System.nanoTime();
+            }
+            process();
+            flush();
+        }
+
+        void onWritable() throws IOException {
+            flush();
+            if (!closed && out.remaining() < HIGH_WATER_MARK) {
+                process();
+                flush();
+            }
+        }
+
+        /**
+         * 处理读缓冲中所有完整的帧，输出积压时停下，返回处理的帧数
+         */
+        private int process() throws IOException {
+            in.flip();
+            int frames = 0;
+            ByteBuffer frame;
+            while (out.remaining() < HIGH_WATER_MARK && (frame = framing.decode(in)) != null) {
+                frames++;
+                ByteBuffer reply = handler.handle(frame);
+                if (reply != null) {
+                    framing.encode(reply, out);
+                }
+            }
+            in.compact();
+            if (!in.hasRemaining() && out.remaining() < HIGH_WATER_MARK) {
+                throw new IOException("frame exceeds " + in.capacity() + " bytes");
+            }
+            return frames;
+        }
+
+        /**
+         * 尽量写出积压的应答，根据剩余情况调整关注的事件
+         */
+        private void flush() throws IOException {
+            while (true) {
+                while (!out.isEmpty() && out.writeTo(channel) > 0) {
+                    lastActive = System.nanoTime();
+                }
+                if (!out.isEmpty()) {
+                    break;
+                }
+                if (!eof) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    return;
+                }
+                // 对端已关闭写方向，但积压时暂停处理的请求可能还留在读缓冲里，全部应答后才关闭
+                if (process() == 0) {
+                    close();
+                    return;
+                }
+            }
+            int ops = SelectionKey.OP_WRITE;
+            if (out.remaining() < HIGH_WATER_MARK && !eof) {
+                ops |= SelectionKey.OP_READ;
+            }
+            key.interestOps(ops);
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            key.cancel();
+            closeQuietly(channel);
+            pool.release(in);
+            out.clear();
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("close failed", e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.springjdk17demo.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+
+/**
+ * 待发送的缓冲队列，用 gather write 一次系统调用写出多段
+ * <p>
+ * 帧头、内容、帧尾各自是一个 ByteBuffer，不拼接到一起。阻塞/NIO 通道直接调用 {@link #writeTo(GatheringByteChannel)}；
+ * AIO 通道用 {@link #array()}、{@link #offset()}、{@link #length()} 发起写，完成后调用 {@link #written(long)}。
+ * 非线程安全。
+ */
+public final class OutboundQueue {
+
+    /**
+     * 单次 gather write 最多的段数，小于各平台的 IOV_MAX
+     */
+    static final int MAX_GATHER = 64;
+
+    private ByteBuffer[] buffers = new ByteBuffer[16];
+    private int head;
+    private int tail;
+    private long remaining;
+
+    public void add(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            return;
+        }
+        if (tail == buffers.length) {
+            if (head > 0) {
+                System.arraycopy(buffers, head, buffers, 0, tail - head);
+                Arrays.fill(buffers, tail - head, tail, null);
+                tail -= head;
+                head = 0;
+            } else {
+                buffers = Arrays.copyOf(buffers, buffers.length * 2);
+            }
+        }
+        buffers[tail++] = buffer;
+        remaining += buffer.remaining();
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * 尚未写出的字节数
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    /**
+     * 尽量写出，返回写出的字节数
+     */
+    public long writeTo(GatheringByteChannel channel) throws IOException {
+        if (isEmpty()) {
+            return 0;
+        }
+        long n = channel.write(buffers, head, length());
+        written(n);
+        return n;
+    }
+
+    public ByteBuffer[] array() {
+        return buffers;
+    }
+
+    public int offset() {
+        return head;
+    }
+
+    public int length() {
+        return Math.min(tail - head, MAX_GATHER);
+    }
+
+    /**
+     * 写出 n 字节后调用，丢弃已写完的段
+     */
+    public void written(long n) {
+        remaining -= n;
+        while (head < tail && !buffers[head].hasRemaining()) {
+            buffers[head++] = null;
+        }
+        if (head == tail) {
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(buffers, head, tail, null);
+        head = 0;
+        tail = 0;
+        remaining = 0;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.springjdk17demo.profiler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比 {@link CountEvents#update}、{@link SlidingWindowCounter} 与 {@link BucketedWindowCounter} 的耗时和误差
+ * <p>
+ * 用合成时间戳模拟给定速率的事件流，不依赖真实时钟，三种实现看到的是同一串事件。
+ * Deque 版本每次更新都是 O(窗口内事件数)，速率调高时它会非常慢。
+ */
+public class BucketedWindowComparison {
+
+    public static void main(String[] args) {
+        long interval = TimeUnit.MILLISECONDS.toNanos(100);
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long ratePerSecond = args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+        int resolution = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        long step = Math.max(1, TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+
+        long[] exact = new long[total];
+        long start = System.nanoTime();
+        Deque<Long> events = new ArrayDeque<>();
+        for (int i = 0; i < total; i++) {
+            exact[i] = CountEvents.update(events, i * step, interval);
+        }
+        long dequeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        SlidingWindowCounter ring = new SlidingWindowCounter(interval);
+        for (int i = 0; i < total; i++) {
+            ring.update(i * step);
+        }
+        long ringNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        BucketedWindowCounter bucketed = new BucketedWindowCounter(interval, resolution);
+        double maxError = 0;
+        double sumRelativeError = 0;
+        long maxBound = 0;
+        for (int i = 0; i < total; i++) {
+            long nanos = i * step;
+            bucketed.record(nanos);
+            double error = Math.abs(bucketed.estimate(nanos) - exact[i]);
+            maxError = Math.max(maxError, error);
+            sumRelativeError += error / exact[i];
+            maxBound = Math.max(maxBound, bucketed.errorBound(nanos));
+        }
+        long bucketedNanos = System.nanoTime() - start;
+
+        System.out.println("Events: " + total + ", rate: " + ratePerSecond + "/s, window: "
+                + TimeUnit.NANOSECONDS.toMillis(interval) + " ms, buckets: " + bucketed.getBucketCount());
+        System.out.println("Deque spent time: " + TimeUnit.NANOSECONDS.toMillis(dequeNanos) + " ms");
+        System.out.println("Ring buffer spent time: " + TimeUnit.NANOSECONDS.toMillis(ringNanos) + " ms");
+        System.out.println("Bucketed spent time (with estimate): " + TimeUnit.NANOSECONDS.toMillis(bucketedNanos) + " ms");
+        System.out.printf("Bucketed max abs error: %.1f, max error bound: %d, mean relative error: %.4f%%%n",
+                maxError, maxBound, sumRelativeError / total * 100);
+    }
+}
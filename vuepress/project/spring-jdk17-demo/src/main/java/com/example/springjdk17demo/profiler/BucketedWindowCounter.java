@@ -0,0 +1,111 @@
+package com.example.springjdk17demo.profiler;
+
+import java.util.Arrays;
+
+/**
+ * 分桶的近似滑动窗口计数
+ * <p>
+ * 把时间轴按 interval / resolution 的宽度切成桶，只保存每个桶的事件数，内存与事件速率无关。
+ * 桶数组是环形的，每个桶记住自己对应的时间片序号，被新时间片复用时才清零，不需要后台线程衰减。
+ * 窗口左边界落在某个桶中间时，按覆盖比例线性估算这个边界桶的贡献，
+ * 因此与精确计数（{@link CountEvents#update}）的误差不超过 {@link #errorBound(long)}，即边界桶的事件数。
+ * 非线程安全。
+ */
+public class BucketedWindowCounter {
+
+    private final long interval;
+    private final long width;
+    private final long[] counts;
+    private final long[] slices;
+
+    /**
+     * @param interval   窗口长度，单位与时间戳一致（通常为纳秒）
+     * @param resolution 每个窗口切分的桶数，越大越精确
+     */
+    public BucketedWindowCounter(long interval, int resolution) {
+        if (interval <= 0 || resolution <= 0) {
+            throw new IllegalArgumentException("interval and resolution must be positive");
+        }
+        this.interval = interval;
+        this.width = Math.max(1, (interval + resolution - 1) / resolution);
+        // 窗口最多横跨 interval / width + 2 个桶
+        int size = (int) (interval / width) + 2;
+        this.counts = new long[size];
+        this.slices = new long[size];
+        Arrays.fill(slices, Long.MIN_VALUE);
+    }
+
+    /**
+     * 记录一个事件
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * 记录 n 个发生在同一时刻的事件
+     */
+    public void record(long nanos, long n) {
+        long slice = Math.floorDiv(nanos, width);
+        int i = (int) Math.floorMod(slice, (long) counts.length);
+        if (slices[i] != slice) {
+            if (slices[i] > slice) {
+                // 比环形数组覆盖范围还早的事件已经在窗口外
+                return;
+            }
+            slices[i] = slice;
+            counts[i] = 0;
+        }
+        counts[i] += n;
+    }
+
+    /**
+     * 记录一个事件并返回估算的窗口内事件数，用法与 {@link CountEvents#update} 相同
+     */
+    public long update(long nanos) {
+        record(nanos);
+        return Math.round(estimate(nanos));
+    }
+
+    /**
+     * 估算 [nanos - interval, nanos] 内的事件数
+     */
+    public double estimate(long nanos) {
+        long from = nanos - interval;
+        long first = Math.floorDiv(from, width);
+        long last = Math.floorDiv(nanos, width);
+        double covered = (double) ((first + 1) * width - from) / width;
+        // 直接扫一遍环形数组，按桶记录的时间片判断是否在窗口内
+        double total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            long slice = slices[i];
+            if (slice > first && slice <= last) {
+                total += counts[i];
+            } else if (slice == first) {
+                total += covered * counts[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * {@link #estimate(long)} 与精确计数之差的上界
+     */
+    public long errorBound(long nanos) {
+        long from = nanos - interval;
+        return Math.floorMod(from, width) == 0 ? 0 : countOf(Math.floorDiv(from, width));
+    }
+
+    public long getBucketWidth() {
+        return width;
+    }
+
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    private long countOf(long slice) {
+        int i = (int) Math.floorMod(slice, (long) counts.length);
+        return slices[i] == slice ? counts[i] : 0;
+    }
+}
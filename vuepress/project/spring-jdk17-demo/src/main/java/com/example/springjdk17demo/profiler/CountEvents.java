@@ -9,6 +9,9 @@ import java.util.concurrent.TimeUnit;
 
 public class CountEvents {
 
+    /**
+     * 每次都遍历整个队列淘汰过期事件，O(window)，作为 profiler 演示的对照；实际使用 {@link SlidingWindowCounter}
+     */
     public static int update(Deque<Long> events, long nanos, long interval) {
         events.add(nanos);
         events.removeIf(aTime -> aTime < nanos - interval);
@@ -16,21 +19,30 @@ public class CountEvents {
     }
 
     public static void main(String[] args) throws IOException {
-        long start = System.nanoTime();
         int total = 300_000;
         long interval = TimeUnit.MILLISECONDS.toNanos(100);
-        int[] count = new int[total];
+        Path p = Paths.get("./a/b");
+        Files.createDirectories(p);
 
+        long start = System.nanoTime();
+        int[] count = new int[total];
         Deque<Long> collection = new ArrayDeque<>();
         for (int counter = 0; counter < count.length; counter++) {
             count[counter] = update(collection, System.nanoTime(), interval);
-            Path p = Paths.get("./a/b");
-            Files.createDirectories(p);
         }
-        long spent = System.nanoTime() - start;
+        print("Deque", count, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        SlidingWindowCounter windowCounter = new SlidingWindowCounter(interval);
+        for (int counter = 0; counter < count.length; counter++) {
+            count[counter] = windowCounter.update(System.nanoTime());
+        }
+        print("Ring buffer", count, System.nanoTime() - start);
+    }
 
+    private static void print(String name, int[] count, long spent) {
         //noinspection OptionalGetWithoutIsPresent
-        System.out.println("Average count: " + (int) (Arrays.stream(count).average().getAsDouble()) + " op");
-        System.out.println("Spent time: " + TimeUnit.NANOSECONDS.toMillis(spent) + " ms");
+        System.out.println(name + " average count: " + (int) (Arrays.stream(count).average().getAsDouble()) + " op");
+        System.out.println(name + " spent time: " + TimeUnit.NANOSECONDS.toMillis(spent) + " ms");
     }
 }
@@ -1,5 +1,8 @@
 package com.example.springjdk17demo.profiler;
 
+/**
+ * 朴素递归的斐波那契，作为 profiler 演示的对照，实际计算请用 {@link FibonacciEngine}
+ */
 public class Fibonacci {
     public static long fib(int n) {
         if (n <= 1) {
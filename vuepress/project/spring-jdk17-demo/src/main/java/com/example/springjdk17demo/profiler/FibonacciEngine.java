@@ -0,0 +1,114 @@
+package com.example.springjdk17demo.profiler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * 斐波那契数计算
+ * <p>
+ * 用快速倍增法，F(2k) = F(k)(2F(k+1) - F(k))，F(2k+1) = F(k)^2 + F(k+1)^2，只需 O(log n) 次乘法。
+ * n 不超过 {@link #MAX_LONG_INDEX} 时用 long 计算，更大的 n 用 BigInteger，并放入有界的线程安全缓存，
+ * 热点下标不会重复计算。朴素递归版本仍保留在 {@link Fibonacci#fib(int)}，作为 profiler 演示的对照。
+ */
+public class FibonacciEngine {
+
+    /**
+     * long 能表示的最大下标，F(92) = 7540113804746346429
+     */
+    public static final int MAX_LONG_INDEX = 92;
+
+    public static final int DEFAULT_MEMO_SIZE = 1024;
+
+    private final Cache<Integer, BigInteger> memo;
+
+    public FibonacciEngine() {
+        this(DEFAULT_MEMO_SIZE);
+    }
+
+    public FibonacciEngine(int memoSize) {
+        this.memo = CacheBuilder.newBuilder().maximumSize(memoSize).build();
+    }
+
+    /**
+     * 朴素递归，指数复杂度，仅用于对照
+     */
+    public static long naive(int n) {
+        return Fibonacci.fib(n);
+    }
+
+    /**
+     * 快速倍增计算 F(n)，n 必须在 [0, 92] 内
+     */
+    public static long fib(int n) {
+        if (n < 0 || n > MAX_LONG_INDEX) {
+            throw new ArithmeticException("F(" + n + ") does not fit in long, use fibExact");
+        }
+        // 最后一步 b = F(n + 1) 可能溢出，但 long 运算是模 2^64 的，a = F(n) 本身能表示，结果仍然正确
+        long a = 0;
+        long b = 1;
+        for (int bit = Integer.highestOneBit(n); bit != 0; bit >>>= 1) {
+            long c = a * (2 * b - a);
+            long d = a * a + b * b;
+            if ((n & bit) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c + d;
+            }
+        }
+        return a;
+    }
+
+    /**
+     * 计算任意非负下标的 F(n)，超出 long 范围的结果会被缓存
+     */
+    public BigInteger fibExact(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        if (n <= MAX_LONG_INDEX) {
+            return BigInteger.valueOf(fib(n));
+        }
+        try {
+            return memo.get(n, () -> fastDoubling(n));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 在公共池上并行计算多个下标，结果与入参顺序一致
+     */
+    public List<BigInteger> batch(int... ns) {
+        return batch(ForkJoinPool.commonPool(), ns);
+    }
+
+    public List<BigInteger> batch(ForkJoinPool pool, int... ns) {
+        return pool.submit(() -> Arrays.stream(ns).parallel().mapToObj(this::fibExact).collect(Collectors.toList()))
+                .join();
+    }
+
+    private static BigInteger fastDoubling(int n) {
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE;
+        for (int bit = Integer.highestOneBit(n); bit != 0; bit >>>= 1) {
+            BigInteger c = a.multiply(b.shiftLeft(1).subtract(a));
+            BigInteger d = a.multiply(a).add(b.multiply(b));
+            if ((n & bit) == 0) {
+                a = c;
+                b = d;
+            } else {
+                a = d;
+                b = c.add(d);
+            }
+        }
+        return a;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.springjdk17demo.profiler;
+
+/**
+ * 滑动时间窗口内的事件计数
+ * <p>
+ * 事件时间戳存放在 long 环形缓冲区中，新事件追加到尾部，过期事件从头部逐个弹出。
+ * 每个事件只入队、出队各一次，均摊 O(1)；缓冲区满了才按 2 倍扩容，稳定后不再分配内存。
+ * 时间戳应单调不减，比已记录的最新时间更早的事件按最新时间处理。非线程安全，多线程请用 {@link StripedSlidingWindowCounter}。
+ */
+public class SlidingWindowCounter {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final long interval;
+    private long[] ring;
+    private int head;
+    private int size;
+    private long last = Long.MIN_VALUE;
+
+    /**
+     * @param interval 窗口长度，单位与时间戳一致（通常为纳秒）
+     */
+    public SlidingWindowCounter(long interval) {
+        this(interval, DEFAULT_CAPACITY);
+    }
+
+    public SlidingWindowCounter(long interval, int initialCapacity) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive: " + interval);
+        }
+        this.interval = interval;
+        this.ring = new long[Integer.highestOneBit(Math.max(initialCapacity, 2) - 1) << 1];
+    }
+
+    /**
+     * 记录一个事件并返回窗口内的事件数，语义与 {@link CountEvents#update} 相同
+     */
+    public int update(long nanos) {
+        long now = Math.max(nanos, last);
+        if (size == ring.length) {
+            grow();
+        }
+        ring[(head + size) & (ring.length - 1)] = now;
+        size++;
+        last = now;
+        return evict(now);
+    }
+
+    /**
+     * 返回截至 nanos 时窗口内的事件数
+     */
+    public int count(long nanos) {
+        return evict(Math.max(nanos, last));
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    private int evict(long now) {
+        long threshold = now - interval;
+        int mask = ring.length - 1;
+        while (size > 0 && ring[head] < threshold) {
+            head = (head + 1) & mask;
+            size--;
+        }
+        return size;
+    }
+
+    private void grow() {
+        long[] bigger = new long[ring.length << 1];
+        int firstPart = Math.min(size, ring.length - head);
+        System.arraycopy(ring, head, bigger, 0, firstPart);
+        System.arraycopy(ring, 0, bigger, firstPart, size - firstPart);
+        ring = bigger;
+        head = 0;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springjdk17demo.profiler;
+
+/**
+ * 多线程写入的滑动窗口计数
+ * <p>
+ * 按线程把事件分散到多个 {@link SlidingWindowCounter} 分片，每个分片单独加锁，生产者之间基本不会争用同一把锁；
+ * 读取总数时逐个分片淘汰过期事件再求和。时间戳在分片锁内读取，保证每个分片内单调。
+ */
+public class StripedSlidingWindowCounter {
+
+    private final SlidingWindowCounter[] stripes;
+    private final int mask;
+
+    public StripedSlidingWindowCounter(long interval) {
+        this(interval, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public StripedSlidingWindowCounter(long interval, int stripeCount) {
+        int n = Integer.highestOneBit(Math.max(stripeCount, 1) - 1) << 1;
+        n = Math.max(n, 1);
+        this.stripes = new SlidingWindowCounter[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new SlidingWindowCounter(interval);
+        }
+        this.mask = n - 1;
+    }
+
+    /**
+     * 以当前 {@link System#nanoTime()} 记录一个事件
+     */
+    public void record() {
+        SlidingWindowCounter stripe = stripe();
+        synchronized (stripe) {
+            stripe.update(System.nanoTime());
+        }
+    }
+
+    /**
+     * 以指定时间戳记录一个事件，同一线程内的时间戳应单调不减
+     */
+    public void record(long nanos) {
+        SlidingWindowCounter stripe = stripe();
+        synchronized (stripe) {
+            stripe.update(nanos);
+        }
+    }
+
+    /**
+     * 当前窗口内的事件总数
+     */
+    public int count() {
+        return count(System.nanoTime());
+    }
+
+    public int count(long nanos) {
+        int total = 0;
+        for (SlidingWindowCounter stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.count(nanos);
+            }
+        }
+        return total;
+    }
+
+    private SlidingWindowCounter stripe() {
+        long id = Thread.currentThread().getId();
+        return stripes[(int) (id ^ (id >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.springjdk17demo.spider;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已完成下载的清单，保存在磁盘上
+ * <p>
+ * 每行一条 {@code url \t 字节数}，只追加不改写，写入后立即 flush；进程中断后重新打开即可跳过已完成的下载。
+ * 最后一行写了一半时忽略该行。线程安全。
+ */
+public class DownloadManifest implements Closeable {
+
+    private final Map<String, Long> completed = new ConcurrentHashMap<>();
+    private final BufferedWriter writer;
+
+    public DownloadManifest(Path file) throws IOException {
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int tab = line.lastIndexOf('\t');
+                if (tab > 0) {
+                    try {
+                        completed.put(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)));
+                    } catch (NumberFormatException e) {
+                        // 中断时写了一半的行
+                    }
+                }
+            }
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    public boolean contains(String url) {
+        return completed.containsKey(url);
+    }
+
+    /**
+     * 已完成的 URL，只读视图
+     */
+    public Set<String> urls() {
+        return Collections.unmodifiableSet(completed.keySet());
+    }
+
+    public int size() {
+        return completed.size();
+    }
+
+    public synchronized void add(String url, long bytes) throws IOException {
+        if (completed.putIfAbsent(url, bytes) == null) {
+            writer.write(url);
+            writer.write('\t');
+            writer.write(Long.toString(bytes));
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.springjdk17demo.spider;
+
+import com.example.springjdk17demo.concurrent.ThreadPools;
+import com.example.springjdk17demo.http.SharedHttpClient;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 并发、可续传的图片下载器
+ * <p>
+ * 调用方用 {@link #submit(String)} 提交 URL，排队的任务数有上限，满了之后 submit 阻塞，生产者不会无限堆积。
+ * 下载在虚拟线程上执行（JDK 17 上退回 workers 个平台线程），通过 {@link SharedHttpClient} 复用连接：
+ * <ul>
+ *     <li>响应体直接流式写入 {@code 文件名.part}，完成后原子重命名为目标文件，不会留下写了一半的目标文件</li>
+ *     <li>已有 .part 文件时用 Range 请求续传；服务器不支持 Range（返回 200）时从头下载</li>
+ *     <li>失败按指数退避重试，已下载的部分保留给下一次续传；408、429 以外的 4xx 不重试</li>
+ *     <li>完成的 URL 记录在目录下的 {@link #MANIFEST_NAME} 中，重复提交直接跳过</li>
+ *     <li>文件名取 URL 路径的最后一段，每个文件名只属于一个 URL：同一 URL 正在下载时再次提交直接跳过，
+ *     不同 URL 得出同一个文件名时拒绝后来者，不会两个任务写同一个 .part 文件或互相覆盖</li>
+ * </ul>
+ */
+@Slf4j
+public class ImageDownloader implements AutoCloseable {
+
+    public static final String MANIFEST_NAME = ".manifest";
+
+    private static final String PART_SUFFIX = ".part";
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+
+    private final SharedHttpClient client;
+    private final Path directory;
+    private final int maxAttempts;
+    private final DownloadManifest manifest;
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final Semaphore workerPermits;
+    private final int capacity;
+    /**
+     * 文件名 -> 占用它的 URL，包括清单中已完成的和正在下载的；下载失败时释放
+     */
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+
+    private final AtomicLong downloaded = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong resumed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+
+    /**
+     * @param workers       同时下载的数量
+     * @param queueCapacity 等待下载的最大数量
+     * @param maxAttempts   每个 URL 最多尝试的次数
+     */
+    public ImageDownloader(SharedHttpClient client, Path directory, int workers, int queueCapacity,
+                           int maxAttempts) throws IOException {
+        if (workers <= 0 || queueCapacity < 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException(
+                    "workers=" + workers + ", queueCapacity=" + queueCapacity + ", maxAttempts=" + maxAttempts);
+        }
+        this.client = client;
+        this.directory = Files.createDirectories(directory);
+        this.maxAttempts = maxAttempts;
+        this.manifest = new DownloadManifest(directory.resolve(MANIFEST_NAME));
+        for (String url : manifest.urls()) {
+            owners.putIfAbsent(fileName(url), url);
+        }
+        this.executor = ThreadPools.newVirtualOrBounded(workers, "image-downloader");
+        // 虚拟线程执行器本身不限并发，用许可同时限制“正在下载 + 排队”的总数
+        this.capacity = workers + queueCapacity;
+        this.slots = new Semaphore(capacity);
+        this.workerPermits = new Semaphore(workers);
+    }
+
+    /**
+     * 提交一个下载，队列已满时阻塞
+     *
+     * @return 是否真正提交；清单中已存在或同一 URL 正在下载时返回 false
+     * @throws IllegalArgumentException URL 无法得出文件名，或文件名已被另一个 URL 占用
+     */
+    public boolean submit(String url) throws InterruptedException {
+        String name = fileName(url);
+        if (manifest.contains(url)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        String owner = owners.putIfAbsent(name, url);
+        if (url.equals(owner)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        if (owner != null) {
+            throw new IllegalArgumentException("file name " + name + " of " + url + " is already used by " + owner);
+        }
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            owners.remove(name, url);
+            throw e;
+        }
+        try {
+            executor.execute(() -> {
+                boolean success = false;
+                try {
+                    workerPermits.acquire();
+                    try {
+                        success = downloadWithRetry(url);
+                    } finally {
+                        workerPermits.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (!success) {
+                        // 失败后允许重新提交
+                        owners.remove(name, url);
+                    }
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            owners.remove(name, url);
+            slots.release();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * 等待已提交的下载全部结束
+     */
+    public void awaitIdle() throws InterruptedException {
+        slots.acquire(capacity);
+        slots.release(capacity);
+    }
+
+    public Stats stats() {
+        return new Stats(downloaded.get(), skipped.get(), resumed.get(), failed.get(), bytes.get());
+    }
+
+    /**
+     * 等待下载结束后关闭
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        awaitIdle();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        manifest.close();
+    }
+
+    /**
+     * 下载直到成功或放弃，返回是否成功
+     */
+    private boolean downloadWithRetry(String url) throws InterruptedException {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                download(url);
+                return true;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || e instanceof ClientError) {
+                    failed.incrementAndGet();
+                    log.warn("download {} failed after {} attempts: {}", url, attempt, e.toString());
+                    return false;
+                }
+                log.debug("download {} attempt {} failed: {}", url, attempt, e.toString());
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private void download(String url) throws IOException, InterruptedException {
+        if (manifest.contains(url)) {
+            skipped.incrementAndGet();
+            return;
+        }
+        Path target = directory.resolve(fileName(url));
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        long existing = Files.exists(part) ? Files.size(part) : 0;
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMinutes(2));
+        if (existing > 0) {
+            builder.header("Range", "bytes=" + existing + "-");
+        }
+        HttpResponse<InputStream> response = client.send(builder.build(), BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            int status = response.statusCode();
+            if (status == 416 && existing > 0) {
+                // 已下载部分就是完整文件
+                in.transferTo(OutputStream.nullOutputStream());
+            } else if (status == 206 && existing > 0) {
+                if (rangeStart(response) != existing) {
+                    // 服务器返回的区间对不上，丢弃已下载部分，下次从头开始
+                    Files.delete(part);
+                    throw new IOException("unexpected Content-Range for " + url);
+                }
+                resumed.incrementAndGet();
+                copy(in, part, true);
+            } else if (status == 200) {
+                copy(in, part, false);
+            } else if (status >= 400 && status < 500 && status != 408 && status != 429) {
+                throw new ClientError("HTTP " + status + " for " + url);
+            } else {
+                throw new IOException("unexpected HTTP status " + status + " for " + url);
+            }
+        }
+        long size = Files.size(part);
+        moveAtomically(part, target);
+        manifest.add(url, size);
+        downloaded.incrementAndGet();
+    }
+
+    private void copy(InputStream in, Path part, boolean append) throws IOException {
+        try (OutputStream out = Files.newOutputStream(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+                bytes.addAndGet(n);
+            }
+        }
+    }
+
+    private static long rangeStart(HttpResponse<?> response) {
+        // Content-Range: bytes 100-199/200
+        return response.headers().firstValue("Content-Range")
+                .filter(value -> value.startsWith("bytes "))
+                .map(value -> {
+                    int dash = value.indexOf('-');
+                    return dash > 6 ? Long.parseLong(value.substring(6, dash).trim()) : -1L;
+                })
+                .orElse(-1L);
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static String fileName(String url) {
+        String path = URI.create(url).getPath();
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.isEmpty() || name.endsWith(PART_SUFFIX) || name.equals(MANIFEST_NAME)) {
+            throw new IllegalArgumentException("cannot derive file name from " + url);
+        }
+        return name;
+    }
+
+    /**
+     * 重试也不会成功的错误
+     */
+    private static final class ClientError extends IOException {
+        ClientError(String message) {
+            super(message);
+        }
+    }
+
+    public record Stats(long downloaded, long skipped, long resumed, long failed, long bytes) {
+
+    }
+}
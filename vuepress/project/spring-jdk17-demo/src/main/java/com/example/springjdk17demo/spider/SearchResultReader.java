@@ -0,0 +1,114 @@
+package com.example.springjdk17demo.spider;
+
+import com.example.springjdk17demo.http.SharedHttpClient;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+
+/**
+ * 流式读取搜索结果 {@code {"data":[{"url":...}, ...], ...}}
+ * <p>
+ * 边接收响应体边解析，每解析完 data 中的一个元素就把它的 url 交出去，不把整个响应读成字符串，
+ * 内存占用与结果条数无关，第一张图片可以在响应还没接收完时就开始下载。其他字段和元素中的其他字段直接跳过。
+ */
+public class SearchResultReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private SearchResultReader() {
+    }
+
+    /**
+     * 解析一页结果
+     *
+     * @return data 中的元素个数，包括没有 url 的元素
+     */
+    public static int readUrls(InputStream in, UrlSink sink) throws IOException, InterruptedException {
+        int items = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected JSON object at " + parser.getCurrentLocation());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        items++;
+                        String url = readUrl(parser);
+                        if (url != null) {
+                            sink.accept(url);
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 从 0 开始按 limit 翻页，直到某一页不足 limit 条
+     *
+     * @param pages 根据 start、limit 构造一页的请求
+     * @return 所有页的元素总数
+     */
+    public static long readAllPages(SharedHttpClient client, PageRequest pages, int limit, UrlSink sink)
+            throws IOException, InterruptedException {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        long total = 0;
+        for (int start = 0; ; start += limit) {
+            HttpResponse<InputStream> response = client.send(pages.create(start, limit), BodyHandlers.ofInputStream());
+            int items;
+            try (InputStream in = response.body()) {
+                if (response.statusCode() != 200) {
+                    throw new IOException("HTTP " + response.statusCode() + " for " + response.uri());
+                }
+                items = readUrls(in, sink);
+            }
+            total += items;
+            if (items < limit) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * 读取当前元素（parser 停在元素的第一个 token 上）的 url 字段，元素读完后 parser 停在元素的最后一个 token 上
+     */
+    private static String readUrl(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String url = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("url".equals(field) && value == JsonToken.VALUE_STRING) {
+                url = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return url;
+    }
+
+    @FunctionalInterface
+    public interface UrlSink {
+        void accept(String url) throws InterruptedException;
+    }
+
+    @FunctionalInterface
+    public interface PageRequest {
+        HttpRequest create(int start, int limit);
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.springjdk17demo.xml;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * 把只有一层重复记录的大文件按记录边界切分，在 {@link ForkJoinPool} 上并行解析
+ * <p>
+ * 切分只在目标偏移附近按字节查找下一个记录开始标签（如 {@code <book}），不扫描整个文件。
+ * 每个分片前面拼上文件头（XML 声明和带命名空间声明的根开始标签），后面补上根结束标签，
+ * 成为一个独立的文档交给 {@link XmlRecordReader}。要求：
+ * <ul>
+ *     <li>记录是根元素的直接子元素，路径形如 {@code /bookstore/book}，开始标签不带前缀</li>
+ *     <li>编码与 ASCII 兼容（UTF-8、ISO-8859-x），记录标签名不出现在注释或 CDATA 中，记录内没有同名元素</li>
+ * </ul>
+ * 不满足时切到记录中间，分片解析会抛出 {@link XmlRecordReader.XmlReadException}。
+ * <p>
+ * 每条记录交给 handler 转换，非 null 的结果按文件中的顺序交给 sink。同时在途的分片不超过并行度的两倍，
+ * 已完成但还没轮到输出的结果也就有上限。
+ * <p>
+ * handler 抛出的 RuntimeException 原样从 process 抛出，不经 {@link ForkJoinTask} 重新包装；
+ * 分片解析失败抛出 {@link XmlRecordReader.XmlReadException}，读文件失败抛出 {@link UncheckedIOException}。
+ * 任一分片失败或 sink 抛出异常时，取消其余分片并等正在解析的分片停下，之后才关闭文件。
+ */
+public class ParallelXmlProcessor {
+
+    /**
+     * 默认分片大小
+     */
+    public static final long DEFAULT_PARTITION_BYTES = 16L * 1024 * 1024;
+
+    private static final int SCAN_CHUNK = 64 * 1024;
+
+    private final ForkJoinPool pool;
+    private final long partitionBytes;
+
+    public ParallelXmlProcessor(ForkJoinPool pool) {
+        this(pool, DEFAULT_PARTITION_BYTES);
+    }
+
+    public ParallelXmlProcessor(ForkJoinPool pool, long partitionBytes) {
+        if (partitionBytes <= 0) {
+            throw new IllegalArgumentException("partitionBytes must be positive: " + partitionBytes);
+        }
+        this.pool = pool;
+        this.partitionBytes = partitionBytes;
+    }
+
+    /**
+     * 文件中的一段字节 [start, end)
+     */
+    public record Partition(long start, long end) {
+
+        public long length() {
+            return end - start;
+        }
+    }
+
+    /**
+     * 并行转换所有记录，结果按文件顺序交给 sink，返回记录数。sink 只在调用线程上执行
+     */
+    public <R> long process(Path file, String recordPath, Function<? super XmlRecord, ? extends R> handler,
+                            Consumer<? super R> sink) throws IOException {
+        String recordName = recordName(recordPath);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Partition> partitions = partition(channel, recordName, partitionBytes);
+            if (partitions.size() == 1) {
+                return 0;
+            }
+            byte[] header = read(channel, 0, partitions.get(0).end());
+            byte[] footer = ("</" + rootName(header) + ">").getBytes(StandardCharsets.UTF_8);
+
+            int window = Math.max(2, pool.getParallelism() * 2);
+            Deque<ForkJoinTask<Chunk<R>>> inFlight = new ArrayDeque<>();
+            AtomicBoolean aborted = new AtomicBoolean();
+            long count = 0;
+            // 分片 0 是文件头，没有记录
+            int next = 1;
+            try {
+                while (next < partitions.size() || !inFlight.isEmpty()) {
+                    while (next < partitions.size() && inFlight.size() < window) {
+                        InputStream in = open(channel, partitions, next, header, footer);
+                        inFlight.add(pool.submit(() -> parse(in, recordPath, handler, aborted)));
+                        next++;
+                    }
+                    Chunk<R> chunk = inFlight.removeFirst().join();
+                    if (chunk.failure() != null) {
+                        throw chunk.failure();
+                    }
+                    count += chunk.results().size();
+                    chunk.results().forEach(result -> {
+                        if (result != null) {
+                            sink.accept(result);
+                        }
+                    });
+                }
+                return count;
+            } finally {
+                if (!inFlight.isEmpty()) {
+                    // 异常退出：还没开始的直接取消，正在解析的看到 aborted 后停下，等它们都结束才关闭文件
+                    aborted.set(true);
+                    inFlight.forEach(task -> task.cancel(false));
+                    inFlight.forEach(ForkJoinTask::quietlyJoin);
+                }
+            }
+        }
+    }
+
+    /**
+     * 并行转换所有记录，按文件顺序返回非 null 的结果
+     */
+    public <R> List<R> map(Path file, String recordPath, Function<? super XmlRecord, ? extends R> handler)
+            throws IOException {
+        List<R> results = new ArrayList<>();
+        process(file, recordPath, handler, results::add);
+        return results;
+    }
+
+    /**
+     * 按记录边界切分。第一个分片是文件头，从 0 到第一个记录开始；最后一个分片到文件末尾，含根结束标签。
+     * 没有记录时只有文件头一个分片
+     */
+    public static List<Partition> partition(Path file, String recordPath, long partitionBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return partition(channel, recordName(recordPath), partitionBytes);
+        }
+    }
+
+    static List<Partition> partition(FileChannel channel, String recordName, long partitionBytes) throws IOException {
+        long size = channel.size();
+        byte[] pattern = ("<" + recordName).getBytes(StandardCharsets.UTF_8);
+        long first = findRecordStart(channel, pattern, 0);
+        if (first < 0) {
+            return List.of(new Partition(0, size));
+        }
+        List<Partition> partitions = new ArrayList<>();
+        partitions.add(new Partition(0, first));
+        long start = first;
+        while (true) {
+            long target = start + partitionBytes;
+            long end = target < size ? findRecordStart(channel, pattern, target) : -1;
+            if (end < 0) {
+                partitions.add(new Partition(start, size));
+                return partitions;
+            }
+            partitions.add(new Partition(start, end));
+            start = end;
+        }
+    }
+
+    /**
+     * 解析一个分片。异常作为结果返回，由调用线程原样抛出
+     */
+    private <R> Chunk<R> parse(InputStream in, String recordPath, Function<? super XmlRecord, ? extends R> handler,
+                               AtomicBoolean aborted) {
+        List<R> results = new ArrayList<>();
+        try (XmlRecordReader reader = new XmlRecordReader(in, recordPath)) {
+            while (!aborted.get() && reader.hasNext()) {
+                results.add(handler.apply(reader.next()));
+            }
+        } catch (XMLStreamException e) {
+            return new Chunk<>(null, new XmlRecordReader.XmlReadException(e));
+        } catch (IOException e) {
+            return new Chunk<>(null, new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            return new Chunk<>(null, e);
+        }
+        return new Chunk<>(results, null);
+    }
+
+    /**
+     * 一个分片的结果，或者解析它时抛出的异常
+     */
+    private record Chunk<R>(List<R> results, RuntimeException failure) {
+    }
+
+    /**
+     * 记录分片 index 的独立文档：拼上文件头，除最后一个外都补上根结束标签
+     */
+    private static InputStream open(FileChannel channel, List<Partition> partitions, int index, byte[] header,
+                                    byte[] footer) {
+        Partition partition = partitions.get(index);
+        InputStream body = new BufferedInputStream(
+                new RangeInputStream(channel, partition.start(), partition.end()), XmlRecordReader.BUFFER_SIZE);
+        List<InputStream> parts = index == partitions.size() - 1
+                ? List.of(new ByteArrayInputStream(header), body)
+                : List.of(new ByteArrayInputStream(header), body, new ByteArrayInputStream(footer));
+        return new SequenceInputStream(Collections.enumeration(parts));
+    }
+
+    /**
+     * 从 from 开始找第一个 {@code <name} 后跟空白、{@code >} 或 {@code /} 的位置，没有返回 -1
+     */
+    static long findRecordStart(FileChannel channel, byte[] pattern, long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_CHUNK);
+        long size = channel.size();
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                return -1;
+            }
+            byte[] bytes = buffer.array();
+            // 标签名之后还要看一个字节，跨块的匹配留给下一块
+            int limit = n - pattern.length - 1;
+            for (int i = 0; i <= limit; i++) {
+                if (bytes[i] == '<' && matches(bytes, i, pattern) && isNameEnd(bytes[i + pattern.length])) {
+                    return position + i;
+                }
+            }
+            if (position + n >= size) {
+                return -1;
+            }
+            position += Math.max(1, limit + 1);
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] bytes, int offset, byte[] pattern) {
+        for (int j = 1; j < pattern.length; j++) {
+            if (bytes[offset + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * 文件头中根元素的标签名，跳过 XML 声明、处理指令、注释和 DOCTYPE
+     */
+    static String rootName(byte[] header) {
+        int i = 0;
+        while (i < header.length - 1) {
+            if (header[i] != '<') {
+                i++;
+            } else if (startsWith(header, i, "<!--")) {
+                i = skipPast(header, "-->", i + 4);
+            } else if (header[i + 1] == '?' || header[i + 1] == '!') {
+                i = skipPast(header, ">", i + 2);
+            } else {
+                int end = i + 1;
+                while (end < header.length && !isNameEnd(header[end])) {
+                    end++;
+                }
+                return new String(header, i + 1, end - i - 1, StandardCharsets.UTF_8);
+            }
+        }
+        throw new IllegalArgumentException("no root element before the first record");
+    }
+
+    private static int skipPast(byte[] bytes, String target, int from) {
+        for (int i = from; i <= bytes.length - target.length(); i++) {
+            if (startsWith(bytes, i, target)) {
+                return i + target.length();
+            }
+        }
+        return bytes.length;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+        if (offset + prefix.length() > bytes.length) {
+            return false;
+        }
+        for (int j = 0; j < prefix.length(); j++) {
+            if (bytes[offset + j] != prefix.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String recordName(String recordPath) {
+        String[] segments = recordPath.split("/");
+        if (segments.length != 3 || !segments[0].isEmpty() || segments[1].isEmpty() || segments[2].isEmpty()) {
+            throw new IllegalArgumentException("record path must be /root/record: " + recordPath);
+        }
+        return segments[2];
+    }
+
+    private static byte[] read(FileChannel channel, long position, long end) throws IOException {
+        if (end - position > Integer.MAX_VALUE - 8) {
+            throw new IOException("header too large: " + (end - position) + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - position));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 用定位读取文件的一段，多个分片可以共享同一个 FileChannel
+     */
+    private static final class RangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+    }
+}
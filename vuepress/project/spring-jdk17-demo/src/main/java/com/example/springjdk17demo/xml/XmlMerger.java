@@ -0,0 +1,375 @@
+package com.example.springjdk17demo.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * 流式合并多个根元素相同的文档
+ * <p>
+ * 用 {@link XMLEventReader} 读、{@link XMLStreamWriter} 直接写到输出流，不建 DOM，内存占用与文档大小无关：
+ * <ul>
+ *     <li>{@link #concat}：依次写出各输入根元素下的全部子节点，保留空白和注释</li>
+ *     <li>{@link #mergeByKey}：各输入的子元素已按 key 属性升序排列，多路归并，key 相同时后面的输入覆盖前面的；
+ *     根元素下的空白和注释不保留。同一时刻每个输入只缓存一个子元素</li>
+ * </ul>
+ * 输出的根元素取自第一个输入。为了与 DOM + Transformer 的结果逐字节一致，声明带 {@code standalone="no"}，
+ * 属性和命名空间声明按名字排序，没有子节点的元素写成 {@code <x/>}，CDATA 原样保留。
+ * 后续输入根元素上的命名空间声明不会合并到输出中，子元素用到的前缀需在第一个输入的根元素上声明。
+ */
+public class XmlMerger {
+
+    /**
+     * JDK 内置实现的属性，开启后 CDATA 作为单独的事件报告
+     */
+    private static final String REPORT_CDATA = "http://java.sun.com/xml/stream/properties/report-cdata-event";
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private XmlMerger() {
+    }
+
+    /**
+     * 拼接各输入根元素的子节点，输入和输出都不会被关闭
+     */
+    public static void concat(List<? extends InputStream> inputs, OutputStream out)
+            throws XMLStreamException, IOException {
+        List<XMLEventReader> readers = open(inputs);
+        try {
+            Output output = begin(readers, out);
+            for (XMLEventReader reader : readers) {
+                int depth = 0;
+                while (true) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isEndElement() && depth == 0) {
+                        break;
+                    }
+                    if (event.isStartElement() && !isEmpty(reader)) {
+                        depth++;
+                    } else if (event.isEndElement()) {
+                        depth--;
+                    }
+                    write(event, reader, output.open());
+                }
+            }
+            output.finish();
+        } finally {
+            close(readers);
+        }
+    }
+
+    /**
+     * 按子元素的 keyAttribute 属性多路归并，各输入须按 order 严格升序，key 相同时取最后一个输入中的元素
+     */
+    public static void mergeByKey(List<? extends InputStream> inputs, String keyAttribute, Comparator<String> order,
+                                  OutputStream out) throws XMLStreamException, IOException {
+        List<XMLEventReader> readers = open(inputs);
+        try {
+            Output output = begin(readers, out);
+            QName keyName = new QName(keyAttribute);
+            List<Child> heads = new ArrayList<>();
+            for (int i = 0; i < readers.size(); i++) {
+                heads.add(Child.read(readers.get(i), i, keyName, null, order));
+            }
+            while (true) {
+                Child winner = null;
+                for (Child head : heads) {
+                    if (head != null && (winner == null || order.compare(head.key, winner.key) <= 0)) {
+                        // 相同 key 时后面的输入胜出
+                        winner = head;
+                    }
+                }
+                if (winner == null) {
+                    break;
+                }
+                String key = winner.key;
+                winner.writeTo(output.open());
+                for (int i = 0; i < heads.size(); i++) {
+                    Child head = heads.get(i);
+                    if (head != null && order.compare(head.key, key) == 0) {
+                        heads.set(i, Child.read(readers.get(i), i, keyName, head.key, order));
+                    }
+                }
+            }
+            output.finish();
+        } finally {
+            close(readers);
+        }
+    }
+
+    /**
+     * 输出端，根元素的开始标签在写第一个子节点时才写出，没有子节点时写成空元素
+     */
+    private static final class Output {
+
+        private final XMLStreamWriter writer;
+        private StartElement pendingRoot;
+
+        Output(XMLStreamWriter writer, StartElement root) {
+            this.writer = writer;
+            this.pendingRoot = root;
+        }
+
+        XMLStreamWriter open() throws XMLStreamException {
+            if (pendingRoot != null) {
+                writeStart(pendingRoot, writer, false);
+                pendingRoot = null;
+            }
+            return writer;
+        }
+
+        void finish() throws XMLStreamException {
+            if (pendingRoot != null) {
+                writeStart(pendingRoot, writer, true);
+            } else {
+                writer.writeEndElement();
+            }
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        }
+    }
+
+    /**
+     * 一个输入中根元素下的一个子元素及其全部事件
+     */
+    private record Child(String key, List<XMLEvent> events) {
+
+        /**
+         * 读下一个子元素，根元素结束时返回 null
+         */
+        static Child read(XMLEventReader reader, int input, QName keyName, String previous, Comparator<String> order)
+                throws XMLStreamException {
+            while (true) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isEndElement()) {
+                    return null;
+                }
+                if (!event.isStartElement()) {
+                    continue;
+                }
+                Attribute attribute = event.asStartElement().getAttributeByName(keyName);
+                if (attribute == null) {
+                    throw new XMLStreamException("input " + input + ": <" + event.asStartElement().getName()
+                            .getLocalPart() + "> has no " + keyName + " attribute", event.getLocation());
+                }
+                String key = attribute.getValue();
+                if (previous != null && order.compare(previous, key) >= 0) {
+                    throw new XMLStreamException("input " + input + " is not sorted: " + key + " after " + previous,
+                            event.getLocation());
+                }
+                List<XMLEvent> events = new ArrayList<>();
+                events.add(event);
+                int depth = 1;
+                while (depth > 0) {
+                    XMLEvent next = reader.nextEvent();
+                    depth += next.isStartElement() ? 1 : next.isEndElement() ? -1 : 0;
+                    events.add(next);
+                }
+                return new Child(key, events);
+            }
+        }
+
+        void writeTo(XMLStreamWriter writer) throws XMLStreamException {
+            for (int i = 0; i < events.size(); i++) {
+                XMLEvent event = events.get(i);
+                if (event.isStartElement() && events.get(i + 1).isEndElement()) {
+                    writeStart(event.asStartElement(), writer, true);
+                    i++;
+                } else {
+                    writeEvent(event, writer);
+                }
+            }
+        }
+    }
+
+    private static List<XMLEventReader> open(List<? extends InputStream> inputs) throws XMLStreamException {
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("no inputs");
+        }
+        List<XMLEventReader> readers = new ArrayList<>();
+        try {
+            for (InputStream input : inputs) {
+                readers.add(INPUT_FACTORY.createXMLEventReader(input));
+            }
+        } catch (XMLStreamException e) {
+            close(readers);
+            throw e;
+        }
+        return readers;
+    }
+
+    /**
+     * 写出声明和第一个输入在根元素之前的注释，所有输入都停在根元素开始之后
+     */
+    private static Output begin(List<XMLEventReader> readers, OutputStream out)
+            throws XMLStreamException, IOException {
+        XMLEventReader first = readers.get(0);
+        boolean standalone = false;
+        List<XMLEvent> prolog = new ArrayList<>();
+        StartElement root = null;
+        while (root == null) {
+            XMLEvent event = first.nextEvent();
+            if (event.isStartDocument()) {
+                StartDocument document = (StartDocument) event;
+                standalone = document.standaloneSet() && document.isStandalone();
+            } else if (event.isStartElement()) {
+                root = event.asStartElement();
+            } else if (event.getEventType() == XMLEvent.COMMENT
+                    || event.getEventType() == XMLEvent.PROCESSING_INSTRUCTION) {
+                prolog.add(event);
+            }
+        }
+        for (int i = 1; i < readers.size(); i++) {
+            StartElement other = skipToRoot(readers.get(i));
+            if (!other.getName().getLocalPart().equals(root.getName().getLocalPart())) {
+                throw new XMLStreamException("input " + i + " has root <" + other.getName().getLocalPart()
+                        + ">, expected <" + root.getName().getLocalPart() + ">", other.getLocation());
+            }
+        }
+        // XMLStreamWriter 写不出 standalone，声明直接写到输出流
+        out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"" + (standalone ? "yes" : "no") + "\"?>")
+                .getBytes(StandardCharsets.UTF_8));
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        for (XMLEvent event : prolog) {
+            writeEvent(event, writer);
+        }
+        return new Output(writer, root);
+    }
+
+    private static StartElement skipToRoot(XMLEventReader reader) throws XMLStreamException {
+        while (true) {
+            XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                return event.asStartElement();
+            }
+        }
+    }
+
+    /**
+     * 写出一个事件，开始标签后紧跟结束标签时合并为空元素
+     */
+    private static void write(XMLEvent event, XMLEventReader reader, XMLStreamWriter writer)
+            throws XMLStreamException {
+        if (event.isStartElement() && isEmpty(reader)) {
+            writeStart(event.asStartElement(), writer, true);
+            reader.nextEvent();
+        } else {
+            writeEvent(event, writer);
+        }
+    }
+
+    /**
+     * 刚读过的开始标签后面紧跟结束标签
+     */
+    private static boolean isEmpty(XMLEventReader reader) throws XMLStreamException {
+        XMLEvent next = reader.peek();
+        return next != null && next.isEndElement();
+    }
+
+    private static void writeEvent(XMLEvent event, XMLStreamWriter writer) throws XMLStreamException {
+        switch (event.getEventType()) {
+            case XMLEvent.START_ELEMENT -> writeStart(event.asStartElement(), writer, false);
+            case XMLEvent.END_ELEMENT -> writer.writeEndElement();
+            case XMLEvent.CHARACTERS, XMLEvent.SPACE, XMLEvent.CDATA -> {
+                Characters characters = event.asCharacters();
+                if (characters.isCData()) {
+                    writer.writeCData(characters.getData());
+                } else {
+                    writer.writeCharacters(characters.getData());
+                }
+            }
+            case XMLEvent.COMMENT -> writer.writeComment(((Comment) event).getText());
+            case XMLEvent.PROCESSING_INSTRUCTION -> {
+                ProcessingInstruction pi = (ProcessingInstruction) event;
+                writer.writeProcessingInstruction(pi.getTarget(), pi.getData());
+            }
+            default -> {
+                // 文档内不会出现其他事件，DTD 和实体已关闭
+            }
+        }
+    }
+
+    /**
+     * 先写命名空间声明再写属性，各自按名字排序，与 DOM 序列化的顺序一致
+     */
+    private static void writeStart(StartElement element, XMLStreamWriter writer, boolean empty)
+            throws XMLStreamException {
+        QName name = element.getName();
+        if (empty) {
+            writer.writeEmptyElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        } else {
+            writer.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+        }
+        Map<String, XMLEvent> sorted = new TreeMap<>();
+        for (Iterator<Namespace> it = element.getNamespaces(); it.hasNext(); ) {
+            Namespace namespace = it.next();
+            sorted.put(namespace.isDefaultNamespaceDeclaration() ? "0xmlns" : "0xmlns:" + namespace.getPrefix(),
+                    namespace);
+        }
+        for (Iterator<Attribute> it = element.getAttributes(); it.hasNext(); ) {
+            Attribute attribute = it.next();
+            QName attributeName = attribute.getName();
+            sorted.put(attributeName.getPrefix().isEmpty() ? "1" + attributeName.getLocalPart()
+                    : "1" + attributeName.getPrefix() + ":" + attributeName.getLocalPart(), attribute);
+        }
+        for (XMLEvent event : sorted.values()) {
+            if (event.isNamespace()) {
+                Namespace namespace = (Namespace) event;
+                if (namespace.isDefaultNamespaceDeclaration()) {
+                    writer.writeDefaultNamespace(namespace.getNamespaceURI());
+                } else {
+                    writer.writeNamespace(namespace.getPrefix(), namespace.getNamespaceURI());
+                }
+            } else {
+                Attribute attribute = (Attribute) event;
+                QName attributeName = attribute.getName();
+                writer.writeAttribute(attributeName.getPrefix(), attributeName.getNamespaceURI(),
+                        attributeName.getLocalPart(), attribute.getValue());
+            }
+        }
+    }
+
+    private static void close(List<XMLEventReader> readers) {
+        for (XMLEventReader reader : readers) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // 关闭 reader 不会关闭底层输入流，忽略
+            }
+        }
+    }
+
+    /**
+     * CDATA 不合并为普通文本，以便原样写出
+     */
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XmlRecordReader.newInputFactory();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        if (factory.isPropertySupported(REPORT_CDATA)) {
+            factory.setProperty(REPORT_CDATA, true);
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.springjdk17demo.xml;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 从重复元素中抽取的一条记录
+ * <p>
+ * 字段名是相对记录元素的路径，只用本地名（忽略命名空间前缀）：子元素文本为 {@code title}、{@code author/name}，
+ * 属性为 {@code @category}、{@code price/@currency}。同一路径出现多次时保留第一次的值。
+ */
+public final class XmlRecord {
+
+    private final Map<String, String> fields;
+
+    XmlRecord(Map<String, String> fields) {
+        this.fields = fields;
+    }
+
+    public static XmlRecord of(Map<String, String> fields) {
+        return new XmlRecord(new LinkedHashMap<>(fields));
+    }
+
+    public String get(String path) {
+        return fields.get(path);
+    }
+
+    /**
+     * 按文档顺序的全部字段
+     */
+    public Map<String, String> fields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof XmlRecord other && fields.equals(other.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return fields.toString();
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.springjdk17demo.xml;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * 基于 {@link XMLStreamReader} 的流式记录抽取
+ * <p>
+ * 把 {@code /bookstore/book} 这样的重复元素逐个转成 {@link XmlRecord}。任意时刻只持有当前一条记录，
+ * 内存占用与文件大小无关，适合几 GB 的数据源。路径只用本地名匹配，忽略命名空间。
+ * 不处理 DTD 和外部实体。非线程安全，一个实例只能在一个线程中使用。
+ */
+public class XmlRecordReader implements Iterator<XmlRecord>, AutoCloseable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+    private final InputStream in;
+    private final XMLStreamReader reader;
+    private final String[] segments;
+    /**
+     * 当前元素深度
+     */
+    private int depth;
+    /**
+     * 从根开始已匹配的路径段数
+     */
+    private int matched;
+    private XmlRecord next;
+
+    /**
+     * @param recordPath 记录元素的绝对路径，如 {@code /bookstore/book}
+     */
+    public XmlRecordReader(InputStream in, String recordPath) throws XMLStreamException {
+        if (!recordPath.startsWith("/") || recordPath.length() < 2) {
+            throw new IllegalArgumentException("record path must be absolute: " + recordPath);
+        }
+        this.in = in;
+        this.reader = INPUT_FACTORY.createXMLStreamReader(in);
+        this.segments = recordPath.substring(1).split("/");
+    }
+
+    /**
+     * 通过 {@link FileChannel} 打开文件，外加 64KB 缓冲
+     */
+    public static XmlRecordReader open(Path file, String recordPath) throws IOException, XMLStreamException {
+        InputStream in = new BufferedInputStream(
+                Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), BUFFER_SIZE);
+        try {
+            return new XmlRecordReader(in, recordPath);
+        } catch (XMLStreamException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 依次处理文件中的每条记录，返回记录数
+     */
+    public static long forEach(Path file, String recordPath, Consumer<XmlRecord> action)
+            throws IOException, XMLStreamException {
+        long count = 0;
+        try (XmlRecordReader reader = open(file, recordPath)) {
+            while (reader.hasNext()) {
+                action.accept(reader.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readNext();
+            } catch (XMLStreamException e) {
+                throw new XmlReadException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public XmlRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        XmlRecord record = next;
+        next = null;
+        return record;
+    }
+
+    /**
+     * 惰性的记录流，关闭流时关闭 reader
+     */
+    public Stream<XmlRecord> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL),
+                false).onClose(() -> {
+            try {
+                close();
+            } catch (XMLStreamException e) {
+                throw new XmlReadException(e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws XMLStreamException, IOException {
+        try {
+            reader.close();
+        } finally {
+            in.close();
+        }
+    }
+
+    private XmlRecord readNext() throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (matched == depth - 1 && depth <= segments.length
+                        && segments[depth - 1].equals(reader.getLocalName())) {
+                    matched = depth;
+                    if (depth == segments.length) {
+                        XmlRecord record = readRecord();
+                        depth--;
+                        matched--;
+                        return record;
+                    }
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (matched == depth) {
+                    matched--;
+                }
+                depth--;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * reader 停在记录元素的开始标签上，读到对应的结束标签为止
+     */
+    private XmlRecord readRecord() throws XMLStreamException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        StringBuilder path = new StringBuilder();
+        int[] pathLengths = new int[16];
+        StringBuilder text = new StringBuilder();
+        readAttributes(fields, path);
+        int level = 0;
+        while (true) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT -> {
+                    if (level == pathLengths.length) {
+                        pathLengths = Arrays.copyOf(pathLengths, level * 2);
+                    }
+                    pathLengths[level++] = path.length();
+                    if (path.length() > 0) {
+                        path.append('/');
+                    }
+                    path.append(reader.getLocalName());
+                    readAttributes(fields, path);
+                    text.setLength(0);
+                }
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> text.append(reader.getText());
+                case XMLStreamConstants.END_ELEMENT -> {
+                    if (level == 0) {
+                        return new XmlRecord(fields);
+                    }
+                    String value = text.toString().trim();
+                    if (!value.isEmpty()) {
+                        fields.putIfAbsent(path.toString(), value);
+                    }
+                    text.setLength(0);
+                    path.setLength(pathLengths[--level]);
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void readAttributes(Map<String, String> fields, StringBuilder path) {
+        int count = reader.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            String name = reader.getAttributeLocalName(i);
+            String key = path.length() == 0 ? "@" + name : path + "/@" + name;
+            fields.putIfAbsent(key, reader.getAttributeValue(i));
+        }
+    }
+
+    /**
+     * 迭代过程中的解析错误
+     */
+    public static class XmlReadException extends RuntimeException {
+        public XmlReadException(XMLStreamException cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.springjdk17demo.xml;
+
+import com.example.springjdk17demo.concurrent.ThreadPools;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * XPath 表达式与 XSLT 样式表的编译缓存
+ * <p>
+ * 工厂查找和样式表编译比解析一个小文档慢得多，这里每个工厂只创建一次：
+ * <ul>
+ *     <li>样式表编译成线程安全的 {@link Templates}，全局共享；每个线程持有各自的 {@link Transformer}，用前 reset</li>
+ *     <li>{@link XPathExpression} 不是线程安全的，按线程各编译一次后缓存</li>
+ *     <li>{@link DocumentBuilder} 每线程一个，用前 reset</li>
+ *     <li>开启监听后，样式表文件被修改时重新编译，编译失败则保留旧版本；线程下次取 Transformer 时拿到新版本</li>
+ * </ul>
+ */
+@Slf4j
+public class XmlTemplates implements Closeable {
+
+    private static final XmlTemplates DEFAULT = new XmlTemplates(false);
+
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    private final XPathFactory xPathFactory = XPathFactory.newInstance();
+    private final Map<Path, Templates> stylesheets = new ConcurrentHashMap<>();
+    private final AtomicLong compilations = new AtomicLong();
+
+    private final ThreadLocal<DocumentBuilder> documentBuilders;
+    private final ThreadLocal<XPath> xPaths;
+    private final ThreadLocal<Map<String, XPathExpression>> expressions = ThreadLocal.withInitial(HashMap::new);
+    private final ThreadLocal<Map<Path, CachedTransformer>> transformers = ThreadLocal.withInitial(HashMap::new);
+    private final ThreadLocal<Transformer> identities;
+
+    private WatchService watchService;
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+
+    public XmlTemplates(boolean namespaceAware) {
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(namespaceAware);
+        // 工厂都不是线程安全的，只在创建每线程实例时加锁
+        documentBuilders = ThreadLocal.withInitial(() -> {
+            try {
+                synchronized (documentBuilderFactory) {
+                    return documentBuilderFactory.newDocumentBuilder();
+                }
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        xPaths = ThreadLocal.withInitial(() -> {
+            synchronized (xPathFactory) {
+                return xPathFactory.newXPath();
+            }
+        });
+        identities = ThreadLocal.withInitial(() -> {
+            try {
+                synchronized (transformerFactory) {
+                    return transformerFactory.newTransformer();
+                }
+            } catch (TransformerConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * 非命名空间感知的共享实例，与 {@link DocumentBuilderFactory} 的默认行为一致
+     */
+    public static XmlTemplates getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 当前线程的 DocumentBuilder，已 reset
+     */
+    public DocumentBuilder documentBuilder() {
+        DocumentBuilder builder = documentBuilders.get();
+        builder.reset();
+        return builder;
+    }
+
+    /**
+     * 当前线程编译好的表达式，不能交给其他线程使用
+     */
+    public XPathExpression xpath(String expression) throws XPathExpressionException {
+        Map<String, XPathExpression> compiled = expressions.get();
+        XPathExpression result = compiled.get(expression);
+        if (result == null) {
+            result = xPaths.get().compile(expression);
+            compiled.put(expression, result);
+        }
+        return result;
+    }
+
+    /**
+     * 样式表编译后的 Templates，首次使用时编译
+     */
+    public Templates templates(Path stylesheet) throws TransformerConfigurationException {
+        Path key = stylesheet.toAbsolutePath().normalize();
+        Templates templates = stylesheets.get(key);
+        if (templates != null) {
+            return templates;
+        }
+        try {
+            return stylesheets.computeIfAbsent(key, path -> {
+                try {
+                    return compile(path);
+                } catch (TransformerConfigurationException e) {
+                    throw new CompileFailure(e);
+                }
+            });
+        } catch (CompileFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 当前线程对应该样式表的 Transformer，已 reset；样式表重新编译后自动换成新版本
+     */
+    public Transformer transformer(Path stylesheet) throws TransformerConfigurationException {
+        Templates templates = templates(stylesheet);
+        Map<Path, CachedTransformer> cached = transformers.get();
+        Path key = stylesheet.toAbsolutePath().normalize();
+        CachedTransformer entry = cached.get(key);
+        if (entry == null || entry.templates != templates) {
+            entry = new CachedTransformer(templates, templates.newTransformer());
+            cached.put(key, entry);
+        } else {
+            entry.transformer.reset();
+        }
+        return entry.transformer;
+    }
+
+    /**
+     * 当前线程的恒等 Transformer，用于把 DOM 序列化为文本，已 reset
+     */
+    public Transformer identity() {
+        Transformer transformer = identities.get();
+        transformer.reset();
+        return transformer;
+    }
+
+    /**
+     * 立即重新编译样式表，失败时保留旧版本并抛出异常
+     */
+    public Templates reload(Path stylesheet) throws TransformerConfigurationException {
+        Path key = stylesheet.toAbsolutePath().normalize();
+        Templates templates = compile(key);
+        stylesheets.put(key, templates);
+        return templates;
+    }
+
+    /**
+     * 累计编译样式表的次数
+     */
+    public long compilations() {
+        return compilations.get();
+    }
+
+    /**
+     * 监听样式表所在目录，文件修改后重新编译。可多次调用，监听线程只启动一次
+     */
+    public synchronized void watch(Path stylesheet) throws IOException {
+        Path directory = stylesheet.toAbsolutePath().normalize().getParent();
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            ThreadPools.namedDaemon("xml-templates-watcher").newThread(this::watchLoop).start();
+        }
+        if (watchedDirectories.add(directory)) {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+        while (true) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    stylesheets.keySet().stream().filter(path -> path.getParent().equals(directory))
+                            .forEach(this::reloadQuietly);
+                    continue;
+                }
+                Path path = directory.resolve((Path) event.context());
+                if (stylesheets.containsKey(path)) {
+                    reloadQuietly(path);
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void reloadQuietly(Path path) {
+        try {
+            reload(path);
+            log.info("reloaded stylesheet {}", path);
+        } catch (TransformerConfigurationException e) {
+            // 文件可能正写到一半，保留旧版本等待下一次修改事件
+            log.warn("reload stylesheet {} failed: {}", path, e.getMessage());
+        }
+    }
+
+    private Templates compile(Path path) throws TransformerConfigurationException {
+        Templates templates;
+        synchronized (transformerFactory) {
+            templates = transformerFactory.newTemplates(new StreamSource(path.toFile()));
+        }
+        compilations.incrementAndGet();
+        return templates;
+    }
+
+    private record CachedTransformer(Templates templates, Transformer transformer) {
+    }
+
+    private static final class CompileFailure extends RuntimeException {
+
+        CompileFailure(TransformerConfigurationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized TransformerConfigurationException getCause() {
+            return (TransformerConfigurationException) super.getCause();
+        }
+    }
+}
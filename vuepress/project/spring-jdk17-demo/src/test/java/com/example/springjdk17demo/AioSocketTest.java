@@ -13,6 +13,9 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 
+/**
+ * AIO 最简示例，显式线程组、写队列和缓冲池的版本见 {@link com.example.springjdk17demo.net.AioServer}
+ */
 @Slf4j
 public class AioSocketTest {
    static final InetSocketAddress address = new InetSocketAddress("127.0.0.1", 8888);
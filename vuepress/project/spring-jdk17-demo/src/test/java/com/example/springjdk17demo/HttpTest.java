@@ -1,5 +1,6 @@
 package com.example.springjdk17demo;
 
+import com.example.springjdk17demo.http.SharedHttpClient;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.CookieHandler;
@@ -89,4 +90,14 @@ public class HttpTest {
         String body = client.send(request, BodyHandlers.ofString()).body();
         System.out.println(body);
     }
+
+    /**
+     * 共享客户端：复用连接，按主机限制并发
+     */
+    @Test
+    void shared() throws IOException, InterruptedException {
+        String body = SharedHttpClient.getDefault().getString(URI.create("https://www.baidu.com/"));
+        System.out.println(body);
+        System.out.println(SharedHttpClient.getDefault().stats());
+    }
 }
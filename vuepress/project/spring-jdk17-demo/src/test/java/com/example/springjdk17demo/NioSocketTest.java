@@ -16,6 +16,9 @@ import java.util.Scanner;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 
+/**
+ * 单线程 Selector 的最简示例，多 Reactor、长连接、流水线的版本见 {@link com.example.springjdk17demo.net.NioServer}
+ */
 public class NioSocketTest {
 
     @Test
@@ -1,14 +1,18 @@
 package com.example.springjdk17demo;
 
+import com.example.springjdk17demo.net.BlockingServer;
+import com.example.springjdk17demo.net.LineHandler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -47,6 +51,19 @@ public class SocketTest {
         }
     }
 
+    /**
+     * 与 {@link #server()} 协议相同，但每个连接一个（虚拟）线程，多个客户端可以同时连接
+     */
+    @Test
+    @Disabled("占用 8888 端口并一直阻塞，手动运行后再运行 client()")
+    void concurrentServer() throws IOException, InterruptedException {
+        LineHandler handler = line -> "exit".equals(line) ? LineHandler.MEAT.handle(line) + "\nexit"
+                : LineHandler.MEAT.handle(line);
+        try (BlockingServer server = new BlockingServer(new InetSocketAddress(8888), 200, handler).start()) {
+            Thread.currentThread().join();
+        }
+    }
+
     @Test
     void client(){
         try (Socket socket = new Socket("localhost", 8888);
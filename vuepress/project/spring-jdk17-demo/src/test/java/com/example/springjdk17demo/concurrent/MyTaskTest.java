@@ -25,5 +25,9 @@ class MyTaskTest {
         Integer actualTotal = customThreadPool.submit(
                 () -> integerList.parallelStream().reduce(0, Integer::sum)).get();
         System.out.println(actualTotal);
+
+        // 不装箱的写法
+        long primitiveTotal = PrimitiveAggregations.sum(customThreadPool, IntStream.range(1, 1000));
+        assertEquals(actualTotal.longValue(), primitiveTotal);
     }
 }
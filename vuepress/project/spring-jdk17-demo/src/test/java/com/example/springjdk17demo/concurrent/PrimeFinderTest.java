@@ -0,0 +1,53 @@
+package com.example.springjdk17demo.concurrent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+class PrimeFinderTest {
+
+    @Test
+    void find() {
+        try (PrimeFinder finder = new PrimeFinder()) {
+            assertArrayEquals(new PrimeSieve(3_000_000).primes(1_000, 3_000_000), finder.find(1_000, 3_000_000));
+            assertArrayEquals(new int[]{2, 3, 5, 7}, finder.find(1, 10));
+            assertEquals(0, finder.find(10, 5).length);
+        }
+    }
+
+    @Test
+    void count() {
+        try (PrimeFinder finder = new PrimeFinder(new ForkJoinPool(4))) {
+            assertEquals(664_579, finder.count(1, 10_000_000));
+        }
+    }
+
+    @Test
+    void segmentsInOrder() {
+        try (PrimeFinder finder = new PrimeFinder()) {
+            List<int[]> segments = finder.segments(1, 5_000_000).collect(Collectors.toList());
+            assertTrue(segments.size() > 1);
+            int last = 0;
+            for (int[] primes : segments) {
+                for (int p : primes) {
+                    assertTrue(p > last);
+                    last = p;
+                }
+            }
+        }
+    }
+
+    @Test
+    void planByCost() {
+        long[] bounds = PrimeFinder.plan(1, 100_000_000, 16);
+        assertEquals(1, bounds[0]);
+        assertEquals(100_000_001L, bounds[bounds.length - 1]);
+        // 越往后单位宽度代价越高，叶子应越来越窄
+        long firstWidth = bounds[1] - bounds[0];
+        long lastWidth = bounds[bounds.length - 1] - bounds[bounds.length - 2];
+        assertTrue(firstWidth > lastWidth);
+    }
+}
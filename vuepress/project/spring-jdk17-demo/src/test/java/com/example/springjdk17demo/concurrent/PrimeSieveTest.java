@@ -0,0 +1,58 @@
+package com.example.springjdk17demo.concurrent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class PrimeSieveTest {
+
+    @Test
+    void matchesTrialDivision() {
+        PrimeSieve sieve = new PrimeSieve(2_000_000);
+        int[][] ranges = {{0, 1}, {1, 100}, {2, 2}, {3, 3}, {4, 4}, {90, 97}, {999_000, 1_001_000},
+                {1, PrimeSieve.SEGMENT_BITS * 2 + 7}, {1_999_000, 2_000_000}};
+        for (int[] range : ranges) {
+            int[] expected = IntStream.rangeClosed(range[0], range[1]).filter(PrimeSieveTest::isPrime).toArray();
+            assertArrayEquals(expected, sieve.primes(range[0], range[1]), Arrays.toString(range));
+            assertArrayEquals(expected, sieve.stream(range[0], range[1]).toArray(), Arrays.toString(range));
+            assertEquals(expected.length, sieve.count(range[0], range[1]), Arrays.toString(range));
+        }
+    }
+
+    @Test
+    void count() {
+        PrimeSieve sieve = new PrimeSieve(10_000_000);
+        assertEquals(78_498, sieve.count(1, 1_000_000));
+        assertEquals(664_579, sieve.count(1, 10_000_000));
+        assertEquals(0, sieve.count(10, 5));
+    }
+
+    @Test
+    void nearIntegerMax() {
+        PrimeSieve sieve = new PrimeSieve(Integer.MAX_VALUE);
+        int[] primes = sieve.primes(Integer.MAX_VALUE - 100, Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, primes[primes.length - 1]);
+        for (int p : primes) {
+            assertTrue(isPrime(p));
+        }
+    }
+
+    @Test
+    void exceedsLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new PrimeSieve(100).primes(1, 101));
+    }
+
+    private static boolean isPrime(int number) {
+        if (number <= 1) {
+            return false;
+        }
+        for (long i = 2; i * i <= number; i++) {
+            if (number % i == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
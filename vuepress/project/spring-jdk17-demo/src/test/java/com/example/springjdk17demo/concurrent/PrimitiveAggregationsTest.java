@@ -0,0 +1,61 @@
+package com.example.springjdk17demo.concurrent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveAggregationsTest {
+
+    static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Test
+    void sum() {
+        int[] values = IntStream.rangeClosed(1, 10_000_000).toArray();
+        assertEquals(50_000_005_000_000L, PrimitiveAggregations.sum(POOL, values));
+        assertEquals(50_000_005_000_000L, PrimitiveAggregations.sum(POOL, IntStream.rangeClosed(1, 10_000_000)));
+        assertEquals(0L, PrimitiveAggregations.sum(POOL, new int[0]));
+    }
+
+    @Test
+    void stats() {
+        long[] values = new SplittableRandom(42).longs(5_000_000, -1_000, 1_000_000).toArray();
+        LongStats stats = PrimitiveAggregations.stats(POOL, values);
+        assertEquals(values.length, stats.getCount());
+        assertEquals(Arrays.stream(values).sum(), stats.getSum());
+        assertEquals(Arrays.stream(values).min().getAsLong(), stats.getMin());
+        assertEquals(Arrays.stream(values).max().getAsLong(), stats.getMax());
+
+        LongStats streamed = PrimitiveAggregations.aggregate(POOL, LongStream.of(values), LongStats::new);
+        assertEquals(stats.getSum(), streamed.getSum());
+    }
+
+    @Test
+    void percentile() {
+        long[] values = new SplittableRandom(7).longs(2_000_000, 0, 10_000_000).toArray();
+        LongHistogram histogram = PrimitiveAggregations.histogram(POOL, values);
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double p : new double[]{1, 50, 90, 99, 99.9}) {
+            long exact = sorted[(int) Math.ceil(p / 100 * sorted.length) - 1];
+            long estimate = histogram.percentile(p);
+            assertTrue(Math.abs(estimate - exact) <= exact / 64 + 1, p + ": " + exact + " vs " + estimate);
+        }
+        assertEquals(sorted[sorted.length - 1], histogram.percentile(100));
+    }
+
+    @Test
+    void histogramBuckets() {
+        LongHistogram histogram = new LongHistogram(3);
+        for (long v : new long[]{0, 7, 8, 15, 16, 17, 1000, Long.MAX_VALUE}) {
+            int index = histogram.indexOf(v);
+            assertTrue(histogram.upperBound(index) >= v);
+            assertTrue(index == 0 || histogram.upperBound(index - 1) < v);
+        }
+        assertThrows(IllegalArgumentException.class, () -> histogram.accept(-1));
+    }
+}
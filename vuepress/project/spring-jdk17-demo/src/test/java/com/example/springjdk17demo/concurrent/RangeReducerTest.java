@@ -0,0 +1,50 @@
+package com.example.springjdk17demo.concurrent;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+class RangeReducerTest {
+
+    @Test
+    void sum() {
+        RangeReducer<Long> reducer = new RangeReducer<>(0L, RangeReducerTest::sumLeaf, Long::sum);
+        // 结果超出 int 范围
+        assertEquals(5_000_000_050_000_000L, reducer.reduce(1, 100_000_000));
+        assertEquals(5050L, reducer.reduce(1, 100));
+        assertEquals(0L, reducer.reduce(10, 1));
+        assertEquals(5050L, reducer.reduce(1, 100, 1));
+    }
+
+    @Test
+    void orderedCombine() {
+        RangeReducer<String> reducer = new RangeReducer<>(new ForkJoinPool(4), "", (start, end) -> {
+            StringBuilder sb = new StringBuilder();
+            for (long i = start; i <= end; i++) {
+                sb.append(i % 10);
+            }
+            return sb.toString();
+        }, String::concat);
+        String expected = "1234567890".repeat(500);
+        assertEquals(expected, reducer.reduce(1, 5000, 7));
+        assertEquals(expected, reducer.reduce(1, 5000));
+    }
+
+    @Test
+    void threshold() {
+        // 叶子很便宜时，由单叶耗时决定阈值
+        assertEquals(100_000, RangeReducer.threshold(1_000_000, 1, 8));
+        // 区间很大时，由并行度决定阈值
+        assertEquals(1_000_000_000L / 64, RangeReducer.threshold(1_000_000_000L, 1, 8));
+        assertEquals(1, RangeReducer.threshold(100, 1_000_000, 8));
+    }
+
+    private static Long sumLeaf(long start, long end) {
+        long sum = 0;
+        for (long i = start; i <= end; i++) {
+            sum += i;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.springjdk17demo.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SharedHttpClientTest {
+
+    static final int BLOB_SIZE = 1 << 20;
+
+    HttpServer server;
+    ExecutorService executor;
+    final AtomicInteger concurrent = new AtomicInteger();
+    final AtomicInteger maxConcurrent = new AtomicInteger();
+    final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    final CountDownLatch hang = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(32);
+        server.setExecutor(executor);
+        server.createContext("/slow", exchange -> {
+            int now = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(30);
+                respond(exchange, exchange.getRequestURI().getQuery().getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        });
+        server.createContext("/hang", exchange -> {
+            try {
+                hang.await();
+                respond(exchange, new byte[0]);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.createContext("/blob", exchange -> {
+            byte[] bytes = new byte[BLOB_SIZE];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) i;
+            }
+            respond(exchange, bytes);
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        hang.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void capsConcurrencyPerHostAndKeepsOrder() {
+        SharedHttpClient client = new SharedHttpClient(3, Duration.ofSeconds(5));
+        List<HttpRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            requests.add(HttpRequest.newBuilder(uri("/slow?" + i)).build());
+        }
+        List<HttpResponse<String>> responses = client.sendAll(requests, BodyHandlers.ofString()).join();
+
+        for (int i = 0; i < 30; i++) {
+            assertEquals(200, responses.get(i).statusCode());
+            assertEquals(String.valueOf(i), responses.get(i).body());
+        }
+        assertTrue(maxConcurrent.get() <= 3, "max concurrent " + maxConcurrent.get());
+        // keep-alive：连接数不超过并发上限
+        assertTrue(clientPorts.size() <= 3, "connections " + clientPorts.size());
+
+        HostStats stats = client.stats(uri("/"));
+        System.out.println(stats);
+        assertEquals(30, stats.completed());
+        assertEquals(0, stats.inFlight());
+        assertEquals(0, stats.queued());
+        assertTrue(stats.p50Micros() >= 30_000);
+        assertTrue(stats.p99Micros() >= stats.p50Micros());
+    }
+
+    @Test
+    void streamingBodiesHoldPermitUntilConsumed(@TempDir Path dir) throws Exception {
+        SharedHttpClient client = new SharedHttpClient(1, Duration.ofSeconds(5));
+        HttpRequest request = HttpRequest.newBuilder(uri("/blob")).build();
+
+        HttpResponse<Path> file = client.send(request, BodyHandlers.ofFile(dir.resolve("blob.bin")));
+        assertEquals(BLOB_SIZE, Files.size(file.body()));
+        assertEquals((byte) 255, Files.readAllBytes(file.body())[255]);
+
+        HttpResponse<InputStream> stream = client.send(request, BodyHandlers.ofInputStream());
+        // 流还没读完，第二个请求要排队
+        var queued = client.sendAsync(request, BodyHandlers.discarding());
+        Thread.sleep(100);
+        assertFalse(queued.isDone());
+        assertEquals(1, client.stats(uri("/")).queued());
+        try (InputStream in = stream.body()) {
+            assertEquals(BLOB_SIZE, in.readAllBytes().length);
+        }
+        assertEquals(200, queued.get().statusCode());
+        HostStats stats = client.stats(uri("/"));
+        assertEquals(3, stats.completed());
+        assertEquals(0, stats.inFlight());
+    }
+
+    @Test
+    void cancellationReleasesQueueSlotsAndPermits() throws Exception {
+        SharedHttpClient client = new SharedHttpClient(1, Duration.ofSeconds(5));
+        var inFlight = client.sendAsync(HttpRequest.newBuilder(uri("/hang")).build(), BodyHandlers.ofString());
+        var queued = client.sendAsync(HttpRequest.newBuilder(uri("/slow?1")).build(), BodyHandlers.ofString());
+        Thread.sleep(100);
+        assertEquals(1, client.stats(uri("/")).queued());
+
+        // 排队中的请求取消后离开队列，许可不会再转交给它
+        queued.cancel(true);
+        assertEquals(0, client.stats(uri("/")).queued());
+        // 已发出的请求取消后立即归还许可，不用等服务端应答
+        inFlight.cancel(true);
+        assertThrows(CancellationException.class, inFlight::join);
+        assertEquals(0, client.stats(uri("/")).inFlight());
+
+        assertEquals("2", client.getString(uri("/slow?2")));
+        HostStats stats = client.stats(uri("/"));
+        assertEquals(1, stats.completed());
+        assertEquals(0, stats.inFlight());
+        assertEquals(0, stats.queued());
+    }
+
+    @Test
+    void failedRequestsReleasePermits() throws Exception {
+        SharedHttpClient client = new SharedHttpClient(1, Duration.ofSeconds(1));
+        server.stop(0);
+        URI dead = uri("/slow?1");
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IOException.class, () -> client.getString(dead));
+        }
+        HostStats stats = client.stats(dead);
+        assertEquals(3, stats.failed());
+        assertEquals(0, stats.inFlight());
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.springjdk17demo.jca;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import org.junit.jupiter.api.Test;
+
+class AesGcmServiceTest {
+
+    static final int SEGMENT = AesGcmService.SEGMENT_SIZE;
+    static final int HEADER = AesGcmService.STREAM_HEADER_LENGTH;
+
+    final AesGcmService service;
+
+    AesGcmServiceTest() throws Exception {
+        service = new AesGcmService(AesGcmService.generateKey(128));
+    }
+
+    @Test
+    void messageRoundTrip() throws Exception {
+        for (int size : new int[]{0, 1, 15, 16, 64, 1000, 100_000}) {
+            byte[] plaintext = random(size);
+            byte[] message = service.encrypt(plaintext);
+            assertEquals(AesGcmService.encryptedLength(size), message.length);
+            assertArrayEquals(plaintext, service.decrypt(message));
+        }
+        // 随机 IV，同样的明文每次密文不同
+        assertFalse(Arrays.equals(service.encrypt(new byte[16]), service.encrypt(new byte[16])));
+    }
+
+    @Test
+    void directBuffers() throws Exception {
+        byte[] plaintext = random(10_000);
+        ByteBuffer src = ByteBuffer.allocateDirect(plaintext.length).put(plaintext).flip();
+        ByteBuffer sealed = ByteBuffer.allocateDirect(AesGcmService.encryptedLength(plaintext.length));
+        assertEquals(sealed.capacity(), service.encrypt(src, sealed));
+        assertFalse(src.hasRemaining());
+
+        ByteBuffer opened = ByteBuffer.allocateDirect(plaintext.length);
+        assertEquals(plaintext.length, service.decrypt(sealed.flip(), opened));
+        byte[] result = new byte[plaintext.length];
+        opened.flip().get(result);
+        assertArrayEquals(plaintext, result);
+
+        assertThrows(ShortBufferException.class,
+                () -> service.encrypt(ByteBuffer.allocate(10), ByteBuffer.allocate(AesGcmService.encryptedLength(9))));
+    }
+
+    @Test
+    void tamperedMessage() throws Exception {
+        byte[] message = service.encrypt(random(100));
+        message[AesGcmService.IV_LENGTH + 5] ^= 1;
+        assertThrows(AEADBadTagException.class, () -> service.decrypt(message));
+        assertThrows(AEADBadTagException.class, () -> service.decrypt(new byte[10]));
+        AesGcmService other = new AesGcmService(AesGcmService.generateKey(128));
+        assertThrows(AEADBadTagException.class, () -> other.decrypt(service.encrypt(random(100))));
+    }
+
+    @Test
+    void streamRoundTrip() throws Exception {
+        for (int size : new int[]{0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT + 5}) {
+            byte[] plaintext = random(size);
+            byte[] sealed = encryptStream(plaintext);
+            assertEquals(AesGcmService.streamEncryptedLength(size), sealed.length, "size " + size);
+            assertArrayEquals(plaintext, decryptStream(sealed), "size " + size);
+        }
+    }
+
+    @Test
+    void truncatedOrReorderedStream() throws Exception {
+        int sealedSegment = SEGMENT + AesGcmService.TAG_LENGTH;
+        byte[] sealed = encryptStream(random(3 * SEGMENT));
+        // 正好在段边界截断
+        byte[] truncated = Arrays.copyOf(sealed, HEADER + 2 * sealedSegment);
+        assertThrows(AEADBadTagException.class, () -> decryptStream(truncated));
+
+        byte[] swapped = sealed.clone();
+        System.arraycopy(sealed, HEADER, swapped, HEADER + sealedSegment, sealedSegment);
+        System.arraycopy(sealed, HEADER + sealedSegment, swapped, HEADER, sealedSegment);
+        assertThrows(AEADBadTagException.class, () -> decryptStream(swapped));
+
+        assertThrows(java.io.EOFException.class, () -> decryptStream(new byte[3]));
+        assertThrows(java.io.EOFException.class, () -> decryptStream(new byte[HEADER - 1]));
+    }
+
+    @Test
+    void streamKeyDerivedFromSalt() throws Exception {
+        byte[] plaintext = random(2 * SEGMENT);
+        byte[] first = encryptStream(plaintext);
+        byte[] second = encryptStream(plaintext);
+        // 把第二个流的盐和前缀换到第一个流上：子密钥不同，段无法在流之间挪用
+        byte[] spliced = first.clone();
+        System.arraycopy(second, 0, spliced, 0, HEADER);
+        assertThrows(AEADBadTagException.class, () -> decryptStream(spliced));
+
+        byte[] tampered = first.clone();
+        tampered[0] ^= 1;
+        assertThrows(AEADBadTagException.class, () -> decryptStream(tampered));
+    }
+
+    /**
+     * RFC 5869 附录 A.1 的测试向量
+     */
+    @Test
+    void hkdfSha256() throws Exception {
+        byte[] ikm = new byte[22];
+        Arrays.fill(ikm, (byte) 0x0b);
+        byte[] salt = HexFormat.of().parseHex("000102030405060708090a0b0c");
+        byte[] info = HexFormat.of().parseHex("f0f1f2f3f4f5f6f7f8f9");
+        byte[] okm = AesGcmService.hkdfSha256(Mac.getInstance("HmacSHA256"), ikm, salt, info, 42);
+        assertEquals("3cb25f25faacd57a90434f64d0362f2a2d2d0a90cf1a5a4c5db02d56ecc4c5bf34007208d5b887185865",
+                HexFormat.of().formatHex(okm));
+    }
+
+    @Test
+    void sharedAcrossThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        byte[] plaintext = random(i * 7);
+                        assertArrayEquals(plaintext, service.decrypt(service.encrypt(plaintext)));
+                    }
+                    byte[] large = random(2 * SEGMENT + 3);
+                    assertArrayEquals(large, decryptStream(encryptStream(large)));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private byte[] encryptStream(byte[] plaintext) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(plaintext.length, service.encrypt(Channels.newChannel(new ByteArrayInputStream(plaintext)),
+                Channels.newChannel(out)));
+        return out.toByteArray();
+    }
+
+    private byte[] decryptStream(byte[] sealed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.decrypt(Channels.newChannel(new ByteArrayInputStream(sealed)), Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    private static byte[] random(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
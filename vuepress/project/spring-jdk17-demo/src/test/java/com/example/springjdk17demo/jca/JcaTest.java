@@ -185,6 +185,21 @@ public class JcaTest {
         System.out.println("Received message: " + receivedMessage);
     }
 
+    /**
+     * 与上面相同的通信过程，换成 AES-GCM：Cipher 按线程缓存，IV 与密文在同一个数组里，不需要再拷贝拆分
+     */
+    @SneakyThrows
+    @Test
+    void aesGcmService(){
+        AesGcmService service = new AesGcmService(AesGcmService.generateKey(128));
+        String message = "Hello, this is a secret message!";
+
+        byte[] messageToSend = service.encrypt(message.getBytes(StandardCharsets.UTF_8));
+        String receivedMessage = new String(service.decrypt(messageToSend), StandardCharsets.UTF_8);
+
+        System.out.println("Received message: " + receivedMessage);
+    }
+
     @Test
     void secureRandom(){
         SecureRandom random = new SecureRandom();
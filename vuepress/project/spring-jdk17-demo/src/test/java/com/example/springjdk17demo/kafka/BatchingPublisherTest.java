@@ -0,0 +1,99 @@
+package com.example.springjdk17demo.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+class BatchingPublisherTest {
+
+    @Test
+    void metrics() throws Exception {
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+        try (BatchingPublisher<String, String> publisher = new BatchingPublisher<>(producer, 100, 0)) {
+            for (int i = 0; i < 1000; i++) {
+                publisher.send(new ProducerRecord<>("my-topic", "key-" + i, "Message-" + i));
+            }
+            BatchingPublisher.Metrics metrics = publisher.metrics();
+            assertEquals(1000, metrics.sent());
+            assertEquals(1000, metrics.acked());
+            assertEquals(0, metrics.failed());
+            assertEquals(0, metrics.inFlight());
+        }
+        assertEquals(1000, producer.history().size());
+        assertTrue(producer.closed());
+    }
+
+    @Test
+    void backpressure() throws Exception {
+        MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        BatchingPublisher<String, String> publisher = new BatchingPublisher<>(producer, 2, 0);
+        publisher.send(new ProducerRecord<>("t", "1"));
+        publisher.send(new ProducerRecord<>("t", "2"));
+        assertNull(publisher.trySend(new ProducerRecord<>("t", "3"), null, Duration.ofMillis(10)));
+
+        CountDownLatch sent = new CountDownLatch(1);
+        Thread sender = new Thread(() -> {
+            try {
+                publisher.send(new ProducerRecord<>("t", "3"));
+                sent.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sender.start();
+        assertFalse(sent.await(50, TimeUnit.MILLISECONDS));
+
+        assertTrue(producer.completeNext());
+        assertTrue(sent.await(5, TimeUnit.SECONDS));
+        assertTrue(producer.errorNext(new RuntimeException("boom")));
+        assertEquals(1, publisher.metrics().failed());
+        assertEquals(1, publisher.metrics().inFlight());
+        publisher.close();
+    }
+
+    @Test
+    void synchronousSendFailureReleasesPermit() throws Exception {
+        MockProducer<String, String> producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer()) {
+            @Override
+            public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record, Callback callback) {
+                if (record.value() == null) {
+                    throw new NullPointerException("value");
+                }
+                return super.send(record, callback);
+            }
+        };
+        BatchingPublisher<String, String> publisher = new BatchingPublisher<>(producer, 1, 0);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(NullPointerException.class, () -> publisher.send(new ProducerRecord<>("t", null)));
+        }
+        assertNotNull(publisher.trySend(new ProducerRecord<>("t", "ok"), null, Duration.ofSeconds(1)));
+        assertEquals(3, publisher.metrics().failed());
+        assertEquals(0, publisher.metrics().inFlight());
+        publisher.close();
+    }
+
+    @Test
+    void flushOnThreshold() throws Exception {
+        MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+        BatchingPublisher<String, String> publisher = new BatchingPublisher<>(producer, 100, 10);
+        Future<RecordMetadata> first = null;
+        for (int i = 0; i < 9; i++) {
+            Future<RecordMetadata> future = publisher.send(new ProducerRecord<>("t", "v" + i));
+            first = first == null ? future : first;
+        }
+        assertFalse(first.isDone());
+        publisher.send(new ProducerRecord<>("t", "v9"));
+        // MockProducer 的 flush 会确认所有未完成的消息
+        assertTrue(first.isDone());
+        assertEquals(10, publisher.metrics().acked());
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.springjdk17demo.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TestOutputTopic;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.processor.api.MockProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.Stores;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class KafkaStreamsExampleTest {
+
+    static final String[] VOCABULARY = {"kafka", "Streams", "word", "count", "topic", "java", "JDK17", "record",
+            "partition", "offset", "under_score", "x"};
+
+    @Test
+    void tokenizerMatchesSplit() {
+        SplittableRandom random = new SplittableRandom(5);
+        String alphabet = "aZ09_ ,.!-\t中文Ä";
+        for (int n = 0; n < 10_000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int i = 0; i < length; i++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String line = sb.toString();
+            List<String> expected = new ArrayList<>(Arrays.asList(line.toLowerCase().split("\\W+")));
+            expected.removeIf(String::isEmpty);
+            assertEquals(expected, WordTokenizer.words(line), line);
+        }
+    }
+
+    @Test
+    void sameCountsAsOriginal() {
+        List<String> lines = lines(300);
+        Map<String, Long> original = run(KafkaStreamsExample.topology(), lines, false).counts;
+        Map<String, Long> preAggregated = run(KafkaStreamsExample.preAggregatedTopology(Duration.ofSeconds(1), 4),
+                lines, true).counts;
+        original.remove("");
+        assertEquals(original, preAggregated);
+    }
+
+    @Test
+    void preAggregatedCountsSurviveRestart() {
+        MockProcessorContext<String, Long> context = new MockProcessorContext<>();
+        KeyValueStore<String, Long> store = Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore("pending"),
+                Serdes.String(), Serdes.Long()).withLoggingDisabled().build();
+        store.init(context.getStateStoreContext(), store);
+        context.addStateStore(store);
+
+        List<String> lines = lines(300);
+        Map<String, Long> expected = new HashMap<>();
+        lines.forEach(line -> WordTokenizer.words(line).forEach(w -> expected.merge(w, 1L, Long::sum)));
+        // 前一个实例没来得及输出就被撤下（再平衡或关闭），接手的实例从存储里拿到未输出的部分计数
+        WordCountPreAggregator first = new WordCountPreAggregator("pending", Duration.ofSeconds(1), 10_000);
+        first.init(context);
+        lines.subList(0, 150).forEach(line -> first.process(new Record<>(null, line, 0)));
+        assertTrue(context.forwarded().isEmpty());
+
+        context.scheduledPunctuators().clear();
+        WordCountPreAggregator second = new WordCountPreAggregator("pending", Duration.ofSeconds(1), 10_000);
+        second.init(context);
+        lines.subList(150, lines.size()).forEach(line -> second.process(new Record<>(null, line, 0)));
+        context.scheduledPunctuators().get(0).getPunctuator().punctuate(1_000);
+
+        Map<String, Long> counts = new HashMap<>();
+        context.forwarded().forEach(forward -> counts.merge(forward.record().key(), forward.record().value(), Long::sum));
+        assertEquals(expected, counts);
+        assertEquals(expected.size(), context.forwarded().size());
+        assertEquals(0, store.approximateNumEntries());
+    }
+
+    @Test
+    @Tag("slow")
+    void throughput() {
+        // TopologyTestDriver 每条输入都会提交一次，绝对耗时远高于真实集群，这里只看相对差距
+        List<String> lines = lines(1_000);
+
+        Result original = run(KafkaStreamsExample.topology(), lines, false);
+        Result preAggregated = run(KafkaStreamsExample.preAggregatedTopology(Duration.ofSeconds(1), 10_000), lines, true);
+        System.out.println("original: " + original.millis + " ms, " + original.outputs + " output records");
+        System.out.println("pre-aggregated: " + preAggregated.millis + " ms, " + preAggregated.outputs + " output records");
+        assertTrue(preAggregated.outputs * 10 < original.outputs);
+    }
+
+    @Test
+    void trendingTopK() {
+        Duration size = Duration.ofSeconds(10);
+        Duration advance = Duration.ofSeconds(5);
+        Properties props = props();
+        try (TopologyTestDriver driver = new TopologyTestDriver(
+                KafkaStreamsExample.trendingTopology(size, advance, Duration.ZERO, 3), props)) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input-topic", new StringSerializer(),
+                    new StringSerializer());
+            TestOutputTopic<Long, String> output = driver.createOutputTopic("trending-topic", new LongDeserializer(),
+                    new StringDeserializer());
+
+            SplittableRandom random = new SplittableRandom(13);
+            Map<Long, Map<String, Long>> exact = new HashMap<>();
+            for (long ts = 0; ts < 30_000; ts += 10) {
+                // 大量只出现一次的噪声词 + 少数热词，热词的热度随时间变化
+                String noise = "noise" + random.nextInt(1_000_000);
+                String hot = ts < 15_000 ? "kafka" : "streams";
+                String warm = random.nextInt(3) == 0 ? "java" : "jdk" + random.nextInt(3);
+                String line = noise + " " + hot + " " + hot + " " + warm;
+                input.pipeInput(null, line, ts);
+                for (long start = ts - ts % 5_000; start > ts - 10_000 && start >= 0; start -= 5_000) {
+                    Map<String, Long> counts = exact.computeIfAbsent(start, s -> new HashMap<>());
+                    WordTokenizer.words(line).forEach(w -> counts.merge(w, 1L, Long::sum));
+                }
+            }
+            // 推进流时间，关闭所有窗口
+            input.pipeInput(null, "end", 100_000);
+            input.pipeInput(null, "end", 200_000);
+
+            List<KeyValue<Long, String>> results = output.readKeyValuesToList();
+            assertEquals(exact.size(), results.size());
+
+            // 每条记录只写改动的计数器和候选，不整体写出 sketch（2048 x 4 个 long，64KB）
+            TestOutputTopic<byte[], byte[]> changelog = driver.createOutputTopic(
+                    "word-count-test-TrendingWordsWindowStore-changelog", new ByteArrayDeserializer(),
+                    new ByteArrayDeserializer());
+            long changelogBytes = 0;
+            for (KeyValue<byte[], byte[]> kv : changelog.readKeyValuesToList()) {
+                changelogBytes += kv.key.length + (kv.value == null ? 0 : kv.value.length);
+            }
+            assertTrue(changelogBytes < 3_002L * 2048, "changelog bytes " + changelogBytes);
+            for (KeyValue<Long, String> kv : results) {
+                List<TopK.WordCount> top = TopK.decode(kv.value);
+                assertEquals(3, top.size());
+                TopK expected = new TopK(3);
+                exact.get(kv.key).forEach(expected::offer);
+                assertEquals(expected.top().get(0), top.get(0), "window " + kv.key);
+                // Count-Min Sketch 只会高估
+                for (TopK.WordCount wc : top) {
+                    assertTrue(wc.count() >= exact.get(kv.key).getOrDefault(wc.word(), 0L));
+                }
+            }
+        }
+    }
+
+    @Test
+    void trendingCandidatesRestoredFromStore() {
+        List<Record<String, String>> records = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(17);
+        for (long ts = 0; ts < 30_000; ts += 10) {
+            String line = "noise" + random.nextInt(1_000) + " kafka java" + (ts < 15_000 ? " kafka" : " streams");
+            records.add(new Record<>(null, line, ts));
+        }
+        records.add(new Record<>(null, "end", 100_000));
+
+        List<KeyValue<Long, String>> uninterrupted = runCandidates(List.of(records));
+        // 中途换一个新实例，未关闭窗口的 sketch、候选和流时间都要从存储恢复
+        List<KeyValue<Long, String>> restarted = runCandidates(List.of(records.subList(0, 1_234),
+                records.subList(1_234, 2_222), records.subList(2_222, records.size())));
+        assertFalse(uninterrupted.isEmpty());
+        assertEquals(uninterrupted, restarted);
+    }
+
+    @Test
+    void topK() {
+        TopK topK = new TopK(2);
+        topK.offer("a", 1);
+        topK.offer("b", 5);
+        topK.offer("c", 3);
+        topK.offer("a", 10);
+        assertEquals("a=10,b=5", TopK.encode(topK.top()));
+        assertEquals("b=7,a=4", TopK.merge("a=3,b=2", "b=5,c=1,a=1", 2));
+
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("w" + (i % 100), 1);
+        }
+        assertTrue(sketch.estimate("w1") >= 10);
+        assertEquals(1000, sketch.getTotal());
+    }
+
+    private static List<KeyValue<Long, String>> runCandidates(List<List<Record<String, String>>> segments) {
+        MockProcessorContext<Long, String> context = new MockProcessorContext<>();
+        KeyValueStore<Bytes, byte[]> store = Stores.keyValueStoreBuilder(Stores.inMemoryKeyValueStore("windows"),
+                Serdes.Bytes(), Serdes.ByteArray()).withLoggingDisabled().build();
+        store.init(context.getStateStoreContext(), store);
+        context.addStateStore(store);
+
+        for (List<Record<String, String>> segment : segments) {
+            TrendingWordsProcessor processor = new TrendingWordsProcessor("windows", Duration.ofSeconds(10),
+                    Duration.ofSeconds(5), Duration.ZERO, 6, 256, 4);
+            processor.init(context);
+            segment.forEach(processor::process);
+        }
+        // 之前的窗口关闭时计数器和候选都已删除，只剩流时间和 "end" 所在的两个窗口：各 4 个计数器 + 候选
+        assertEquals(1 + 2 * (4 + 1), store.approximateNumEntries());
+        return context.forwarded().stream()
+                .map(forward -> KeyValue.pair(forward.record().key(), forward.record().value()))
+                .toList();
+    }
+
+    private static List<String> lines(int count) {
+        SplittableRandom random = new SplittableRandom(11);
+        List<String> lines = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            StringBuilder sb = new StringBuilder();
+            int words = 1 + random.nextInt(12);
+            for (int i = 0; i < words; i++) {
+                sb.append(VOCABULARY[random.nextInt(VOCABULARY.length)]).append(i % 3 == 0 ? ", " : " ");
+            }
+            lines.add(sb.toString());
+        }
+        return lines;
+    }
+
+    private static Properties props() {
+        Properties props = new Properties();
+        props.put(StreamsConfig.APPLICATION_ID_CONFIG, "word-count-test");
+        props.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        props.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.StringSerde.class);
+        props.put(StreamsConfig.STATESTORE_CACHE_MAX_BYTES_CONFIG, 0);
+        return props;
+    }
+
+    private static Result run(Topology topology, List<String> lines, boolean punctuate) {
+        Properties props = props();
+        try (TopologyTestDriver driver = new TopologyTestDriver(topology, props)) {
+            TestInputTopic<String, String> input = driver.createInputTopic("input-topic", new StringSerializer(),
+                    new StringSerializer());
+            TestOutputTopic<String, Long> output = driver.createOutputTopic("output-topic", new StringDeserializer(),
+                    new LongDeserializer());
+            long start = System.nanoTime();
+            for (int i = 0; i < lines.size(); i++) {
+                input.pipeInput(null, lines.get(i));
+                if (punctuate && i % 100 == 99) {
+                    driver.advanceWallClockTime(Duration.ofSeconds(1));
+                }
+            }
+            if (punctuate) {
+                driver.advanceWallClockTime(Duration.ofSeconds(1));
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Map<String, Long> counts = new HashMap<>();
+            long outputs = 0;
+            for (KeyValue<String, Long> kv : output.readKeyValuesToList()) {
+                counts.put(kv.key, kv.value);
+                outputs++;
+            }
+            return new Result(counts, outputs, millis);
+        }
+    }
+
+    record Result(Map<String, Long> counts, long outputs, long millis) {
+
+    }
+}
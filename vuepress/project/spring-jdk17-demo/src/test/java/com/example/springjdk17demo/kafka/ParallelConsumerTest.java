@@ -0,0 +1,223 @@
+package com.example.springjdk17demo.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.junit.jupiter.api.Test;
+
+class ParallelConsumerTest {
+
+    static final TopicPartition P0 = new TopicPartition("topic1", 0);
+    static final TopicPartition P1 = new TopicPartition("topic1", 1);
+
+    @Test
+    void orderedPerPartition() {
+        MockConsumer<String, String> consumer = newConsumer();
+        Map<TopicPartition, List<Long>> seen = new ConcurrentHashMap<>();
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        ParallelConsumer<String, String> engine = new ParallelConsumer<>(consumer, (partition, records) -> {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+            List<Long> offsets = seen.computeIfAbsent(partition, p -> new ArrayList<>());
+            records.forEach(r -> offsets.add(r.offset()));
+        }, workers, 100);
+        engine.subscribe(List.of("topic1"));
+        consumer.rebalance(List.of(P0, P1));
+
+        int total = 0;
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                long offset = round * 10L + i;
+                consumer.addRecord(new ConsumerRecord<>("topic1", 0, offset, "k", "v" + offset));
+                consumer.addRecord(new ConsumerRecord<>("topic1", 1, offset, "k", "v" + offset));
+            }
+            total += engine.pollOnce(Duration.ofMillis(10));
+        }
+        engine.awaitIdle(Duration.ofSeconds(10));
+        engine.commitSync();
+
+        assertEquals(400, total);
+        for (TopicPartition partition : List.of(P0, P1)) {
+            List<Long> offsets = seen.get(partition);
+            assertEquals(200, offsets.size());
+            for (int i = 0; i < offsets.size(); i++) {
+                assertEquals(i, offsets.get(i));
+            }
+        }
+        assertEquals(200, consumer.committed(Set.of(P0)).get(P0).offset());
+        assertEquals(200, consumer.committed(Set.of(P1)).get(P1).offset());
+        workers.shutdown();
+    }
+
+    @Test
+    void pauseWhenBehind() throws InterruptedException {
+        MockConsumer<String, String> consumer = newConsumer();
+        CountDownLatch release = new CountDownLatch(1);
+        ParallelConsumer<String, String> engine = new ParallelConsumer<>(consumer, (partition, records) -> {
+            if (partition.equals(P0)) {
+                release.await();
+            }
+        }, Executors.newFixedThreadPool(2), 1);
+        engine.subscribe(List.of("topic1"));
+        consumer.rebalance(List.of(P0, P1));
+
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 0, "k", "a"));
+        engine.pollOnce(Duration.ofMillis(10));
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 1, "k", "b"));
+        engine.pollOnce(Duration.ofMillis(10));
+        assertEquals(Set.of(P0), engine.paused());
+        assertEquals(Set.of(P0), consumer.paused());
+
+        // P0 暂停期间不会再拉到它的消息，P1 照常处理
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 2, "k", "c"));
+        consumer.addRecord(new ConsumerRecord<>("topic1", 1, 0, "k", "d"));
+        assertEquals(1, engine.pollOnce(Duration.ofMillis(10)));
+
+        release.countDown();
+        engine.awaitIdle(Duration.ofSeconds(10));
+        assertEquals(1, engine.pollOnce(Duration.ofMillis(10)));
+        assertTrue(engine.paused().isEmpty());
+        engine.awaitIdle(Duration.ofSeconds(10));
+        engine.commitSync();
+        assertEquals(3, consumer.committed(Set.of(P0)).get(P0).offset());
+    }
+
+    @Test
+    void failedBatchNotCommitted() {
+        MockConsumer<String, String> consumer = newConsumer();
+        ParallelConsumer<String, String> engine = new ParallelConsumer<>(consumer, (partition, records) -> {
+            if (records.get(0).offset() == 1) {
+                throw new IllegalArgumentException("bad record");
+            }
+        }, Executors.newFixedThreadPool(2), 10);
+        engine.subscribe(List.of("topic1"));
+        consumer.rebalance(List.of(P0));
+
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 0, "k", "a"));
+        engine.pollOnce(Duration.ofMillis(10));
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 1, "k", "b"));
+        engine.pollOnce(Duration.ofMillis(10));
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 2, "k", "c"));
+        engine.pollOnce(Duration.ofMillis(10));
+
+        assertThrows(IllegalStateException.class, () -> engine.awaitIdle(Duration.ofSeconds(10)));
+        engine.commitSync();
+        assertEquals(1, consumer.committed(Set.of(P0)).get(P0).offset());
+    }
+
+    @Test
+    void finalCommitSurvivesPendingWakeup() {
+        WakeupConsumer consumer = new WakeupConsumer();
+        initBeginningOffsets(consumer);
+        ParallelConsumer<String, String> engine = new ParallelConsumer<>(consumer, (partition, records) -> {
+        }, Executors.newFixedThreadPool(2), 10);
+        engine.subscribe(List.of("topic1"));
+        consumer.rebalance(List.of(P0));
+
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 0, "k", "a"));
+        engine.pollOnce(Duration.ofMillis(10));
+        engine.awaitIdle(Duration.ofSeconds(10));
+        // poll 线程不在 poll 里时 stop，唤醒标记会留给 run 退出前的那次提交
+        engine.stop();
+        engine.run(Duration.ofMillis(10));
+
+        assertEquals(1, consumer.committed(Set.of(P0)).get(P0).offset());
+    }
+
+    @Test
+    void lateCompletionOfRevokedPartitionNotCommitted() throws InterruptedException {
+        WakeupConsumer consumer = new WakeupConsumer();
+        initBeginningOffsets(consumer);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        ParallelConsumer<String, String> engine = new ParallelConsumer<>(consumer, (partition, records) -> {
+            if (partition.equals(P0)) {
+                release.await();
+            }
+        }, workers, 10);
+        engine.subscribe(List.of("topic1"));
+        consumer.rebalance(List.of(P0, P1));
+
+        consumer.addRecord(new ConsumerRecord<>("topic1", 0, 0, "k", "a"));
+        consumer.addRecord(new ConsumerRecord<>("topic1", 1, 0, "k", "b"));
+        engine.pollOnce(Duration.ofMillis(10));
+        // 中断让收回时的等待立即返回，效果与等待超时相同
+        Thread.currentThread().interrupt();
+        consumer.listener.onPartitionsRevoked(List.of(P0));
+        assertTrue(Thread.interrupted());
+
+        release.countDown();
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(10, TimeUnit.SECONDS));
+        engine.commitSync();
+
+        assertNull(consumer.committed(Set.of(P0)).get(P0));
+        assertEquals(1, consumer.committed(Set.of(P1)).get(P1).offset());
+    }
+
+    private static MockConsumer<String, String> newConsumer() {
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        initBeginningOffsets(consumer);
+        return consumer;
+    }
+
+    private static void initBeginningOffsets(MockConsumer<String, String> consumer) {
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        beginning.put(P0, 0L);
+        beginning.put(P1, 0L);
+        consumer.updateBeginningOffsets(beginning);
+    }
+
+    /**
+     * 像 KafkaConsumer 一样，poll 之外留下的唤醒标记会打断下一次 commitSync；并记下再均衡监听器，
+     * MockConsumer.rebalance 不会回调它
+     */
+    static final class WakeupConsumer extends MockConsumer<String, String> {
+
+        final AtomicBoolean wakeupPending = new AtomicBoolean();
+        ConsumerRebalanceListener listener;
+
+        WakeupConsumer() {
+            super(OffsetResetStrategy.EARLIEST);
+        }
+
+        @Override
+        public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener listener) {
+            this.listener = listener;
+            super.subscribe(topics, listener);
+        }
+
+        @Override
+        public synchronized void wakeup() {
+            wakeupPending.set(true);
+            super.wakeup();
+        }
+
+        @Override
+        public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+            if (wakeupPending.getAndSet(false)) {
+                throw new WakeupException();
+            }
+            super.commitSync(offsets);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.springjdk17demo.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class TransactionalPipelineTest {
+
+    static final TopicPartition P0 = new TopicPartition("input", 0);
+
+    @Test
+    void batchesRecordsPerTransaction() {
+        MockConsumer<String, String> consumer = newConsumer();
+        MockProducer<String, String> producer = newProducer();
+        TransactionalPipeline<String, String, String, String> pipeline = newPipeline(consumer, () -> producer, 100);
+
+        addRecords(consumer, 0, 250);
+        assertEquals(250, pipeline.pollOnce(Duration.ofMillis(10)));
+        assertEquals(2, pipeline.stats().committedTransactions());
+        assertTrue(producer.transactionInFlight());
+        pipeline.commit();
+
+        assertEquals(new TransactionalPipeline.Stats(3, 250, 0, 0), pipeline.stats());
+        assertEquals(250, producer.history().size());
+        assertEquals("V249", producer.history().get(249).value());
+        List<Map<String, Map<TopicPartition, OffsetAndMetadata>>> offsets = producer.consumerGroupOffsetsHistory();
+        assertEquals(3, offsets.size());
+        assertEquals(250, offsets.get(2).values().iterator().next().get(P0).offset());
+    }
+
+    @Test
+    void commitsWhenTransactionTimesOut() throws InterruptedException {
+        MockConsumer<String, String> consumer = newConsumer();
+        MockProducer<String, String> producer = newProducer();
+        TransactionalPipeline<String, String, String, String> pipeline = new TransactionalPipeline<>(consumer,
+                () -> producer, TransactionalPipelineTest::upperCase, 1000, Duration.ofMillis(20));
+
+        addRecords(consumer, 0, 10);
+        pipeline.pollOnce(Duration.ofMillis(10));
+        assertEquals(0, pipeline.stats().committedTransactions());
+        TimeUnit.MILLISECONDS.sleep(30);
+        pipeline.pollOnce(Duration.ofMillis(10));
+        assertEquals(1, pipeline.stats().committedTransactions());
+        assertTrue(producer.transactionCommitted());
+    }
+
+    @Test
+    void abortRewindsConsumer() {
+        MockConsumer<String, String> consumer = newConsumer();
+        MockProducer<String, String> producer = newProducer();
+        TransactionalPipeline<String, String, String, String> pipeline = newPipeline(consumer, () -> producer, 1000);
+
+        addRecords(consumer, 0, 50);
+        pipeline.pollOnce(Duration.ofMillis(10));
+        producer.commitTransactionException = new KafkaException("broker unavailable");
+        pipeline.commit();
+        assertTrue(producer.transactionAborted());
+        assertEquals(0, consumer.position(P0));
+        assertEquals(1, pipeline.stats().abortedTransactions());
+
+        producer.commitTransactionException = null;
+        addRecords(consumer, 0, 50);
+        pipeline.pollOnce(Duration.ofMillis(10));
+        pipeline.commit();
+        assertEquals(new TransactionalPipeline.Stats(1, 50, 1, 0), pipeline.stats());
+        assertEquals(50, producer.history().size());
+    }
+
+    @Test
+    void transformFailureAbortsTransaction() {
+        MockConsumer<String, String> consumer = newConsumer();
+        MockProducer<String, String> producer = newProducer();
+        TransactionalPipeline<String, String, String, String> pipeline = new TransactionalPipeline<>(consumer,
+                () -> producer, record -> {
+                    if (record.offset() == 20) {
+                        throw new IllegalArgumentException("bad record");
+                    }
+                    return upperCase(record);
+                }, 1000, Duration.ofMinutes(1));
+
+        addRecords(consumer, 0, 50);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.pollOnce(Duration.ofMillis(10)));
+        assertTrue(producer.transactionAborted());
+        assertFalse(producer.transactionInFlight());
+        assertEquals(0, consumer.position(P0));
+        assertEquals(new TransactionalPipeline.Stats(0, 0, 1, 0), pipeline.stats());
+        assertTrue(producer.history().isEmpty());
+    }
+
+    @Test
+    void rewindsToTransactionStartWithoutCommittedOffset() {
+        // latest：从没提交过 offset 的分区从 1000 开始消费，中止后不能退回分区开头
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.LATEST);
+        consumer.assign(List.of(P0));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L));
+        consumer.seek(P0, 1000);
+        MockProducer<String, String> producer = newProducer();
+        TransactionalPipeline<String, String, String, String> pipeline = new TransactionalPipeline<>(consumer,
+                () -> producer, record -> {
+                    if (record.offset() == 1150) {
+                        throw new IllegalArgumentException("bad record");
+                    }
+                    return upperCase(record);
+                }, 100, Duration.ofMinutes(1));
+
+        addRecords(consumer, 1000, 250);
+        assertThrows(IllegalArgumentException.class, () -> pipeline.pollOnce(Duration.ofMillis(10)));
+        // 1000..1099 已随第一个事务提交，回到第二个事务的开始处
+        assertEquals(1100, consumer.position(P0));
+        assertEquals(new TransactionalPipeline.Stats(1, 100, 1, 0), pipeline.stats());
+
+        producer.commitTransactionException = new KafkaException("broker unavailable");
+        addRecords(consumer, 1100, 40);
+        pipeline.pollOnce(Duration.ofMillis(10));
+        pipeline.commit();
+        assertEquals(1100, consumer.position(P0));
+    }
+
+    @Test
+    void recreatesFencedProducer() {
+        MockConsumer<String, String> consumer = newConsumer();
+        List<MockProducer<String, String>> producers = new ArrayList<>();
+        TransactionalPipeline<String, String, String, String> pipeline = newPipeline(consumer, () -> {
+            MockProducer<String, String> producer = newProducer();
+            producers.add(producer);
+            return producer;
+        }, 1000);
+
+        addRecords(consumer, 0, 50);
+        pipeline.pollOnce(Duration.ofMillis(10));
+        producers.get(0).fenceProducer();
+        pipeline.commit();
+        assertEquals(2, producers.size());
+        assertTrue(producers.get(0).closed());
+        assertEquals(0, consumer.position(P0));
+
+        addRecords(consumer, 0, 50);
+        pipeline.pollOnce(Duration.ofMillis(10));
+        pipeline.commit();
+        assertEquals(new TransactionalPipeline.Stats(1, 50, 0, 1), pipeline.stats());
+        assertEquals(50, producers.get(1).history().size());
+        assertTrue(producers.get(1).transactionCommitted());
+    }
+
+    /**
+     * 每次事务提交模拟 1ms 的协调者往返，对比不同事务大小的吞吐。结果依赖机器负载，默认不运行
+     */
+    @Test
+    @Tag("slow")
+    void throughputByTransactionSize() {
+        int total = 2000;
+        double[] rates = new double[4];
+        int[] sizes = {1, 10, 100, 1000};
+        for (int s = 0; s < sizes.length; s++) {
+            MockConsumer<String, String> consumer = newConsumer();
+            TransactionalPipeline<String, String, String, String> pipeline = newPipeline(consumer,
+                    LatentProducer::new, sizes[s]);
+            long start = System.nanoTime();
+            for (int offset = 0; offset < total; offset += 500) {
+                addRecords(consumer, offset, 500);
+                pipeline.pollOnce(Duration.ofMillis(10));
+            }
+            pipeline.commit();
+            long nanos = System.nanoTime() - start;
+            assertEquals(total, pipeline.stats().committedRecords());
+            rates[s] = total * 1e9 / nanos;
+            System.out.printf("transaction size %4d: %d transactions, %.0f records/s%n", sizes[s],
+                    pipeline.stats().committedTransactions(), rates[s]);
+        }
+        assertTrue(rates[2] > rates[0] * 10);
+    }
+
+    private static TransactionalPipeline<String, String, String, String> newPipeline(
+            MockConsumer<String, String> consumer, Supplier<Producer<String, String>> factory,
+            int maxRecords) {
+        return new TransactionalPipeline<>(consumer, factory, TransactionalPipelineTest::upperCase, maxRecords,
+                Duration.ofMinutes(1));
+    }
+
+    private static ProducerRecord<String, String> upperCase(ConsumerRecord<String, String> record) {
+        return new ProducerRecord<>("output", record.key(), record.value().toUpperCase());
+    }
+
+    private static MockConsumer<String, String> newConsumer() {
+        MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(List.of(P0));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L));
+        return consumer;
+    }
+
+    private static MockProducer<String, String> newProducer() {
+        return new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+    }
+
+    private static void addRecords(MockConsumer<String, String> consumer, long from, int count) {
+        for (long offset = from; offset < from + count; offset++) {
+            consumer.addRecord(new ConsumerRecord<>(P0.topic(), P0.partition(), offset, "k", "v" + offset));
+        }
+    }
+
+    /**
+     * 本地 broker 替身：提交事务时加入固定延迟
+     */
+    static class LatentProducer extends MockProducer<String, String> {
+
+        LatentProducer() {
+            super(true, new StringSerializer(), new StringSerializer());
+        }
+
+        @Override
+        public void commitTransaction() {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            super.commitTransaction();
+        }
+
+    }
+}
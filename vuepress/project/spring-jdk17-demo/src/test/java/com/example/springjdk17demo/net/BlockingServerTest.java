@@ -0,0 +1,98 @@
+package com.example.springjdk17demo.net;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.springjdk17demo.concurrent.LongHistogram;
+import com.sun.management.UnixOperatingSystemMXBean;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class BlockingServerTest {
+
+    @Test
+    void servesClientsConcurrently() throws IOException {
+        try (BlockingServer server = new BlockingServer(NioServerTest.ANY_PORT, 4, LineHandler.MEAT).start();
+             Socket idle = new Socket();
+             Socket socket = new Socket()) {
+            // 第一个连接不发请求也不断开，不影响第二个连接
+            idle.connect(server.getLocalAddress());
+            socket.connect(server.getLocalAddress());
+            socket.setSoTimeout(5000);
+            BufferedReader reader = NioServerTest.reader(socket);
+            socket.getOutputStream().write("我要吃肉\nhello\r\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals("地主家没有余粮了", reader.readLine());
+            assertEquals("我不知道你在说什么", reader.readLine());
+            socket.shutdownOutput();
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void load() throws Exception {
+        try (BlockingServer server = new BlockingServer(NioServerTest.ANY_PORT, 64, LineHandler.MEAT).start()) {
+            LoadGenerator.Result result = LoadGenerator.run(server.getLocalAddress(), 2000, 20, 10, 16);
+            System.out.println("blocking: " + result);
+            assertEquals(40_000, result.requests());
+        }
+    }
+
+    /**
+     * 同时保持 1 万个连接（受进程文件句柄上限约束，客户端和服务端各占一个句柄），耗时且占满句柄，默认不运行
+     */
+    @Test
+    @Tag("slow")
+    void holdsTenThousandConnections() throws IOException {
+        UnixOperatingSystemMXBean os = (UnixOperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        int connections = (int) Math.min(10_000,
+                (os.getMaxFileDescriptorCount() - os.getOpenFileDescriptorCount() - 500) / 2);
+        byte[] request = "我要吃肉\n".getBytes(StandardCharsets.UTF_8);
+        List<Socket> sockets = new ArrayList<>(connections);
+        LongHistogram micros = new LongHistogram();
+        try (BlockingServer server = new BlockingServer(NioServerTest.ANY_PORT, connections, LineHandler.MEAT)
+                .start()) {
+            long start = System.nanoTime();
+            try {
+                for (int i = 0; i < connections; i++) {
+                    long begin = System.nanoTime();
+                    Socket socket = new Socket();
+                    sockets.add(socket);
+                    socket.connect(server.getLocalAddress());
+                    socket.getOutputStream().write(request);
+                    assertEquals("地主家没有余粮了", readLine(socket.getInputStream()));
+                    micros.accept((System.nanoTime() - begin) / 1000);
+                }
+                long elapsed = System.nanoTime() - start;
+                assertEquals(connections, server.activeConnections());
+                System.out.printf("blocking: held %d connections (virtual threads: %s) in %d ms, "
+                                + "first reply p50 %d us, p99 %d us, max %d us%n", connections,
+                        BlockingServer.isVirtual(), elapsed / 1_000_000, micros.percentile(50),
+                        micros.percentile(99), micros.getStats().getMax());
+            } finally {
+                for (Socket socket : sockets) {
+                    socket.close();
+                }
+            }
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        byte[] bytes = new byte[64];
+        int length = 0;
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("connection closed");
+            }
+            bytes[length++] = (byte) b;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.springjdk17demo.net;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FramingTest {
+
+    @Test
+    void lengthPrefixedAcrossReads() throws IOException {
+        Framing framing = Framing.lengthPrefixed(1024);
+        OutboundQueue out = new OutboundQueue();
+        framing.encode(utf8("我要吃肉"), out);
+        framing.encode(utf8(""), out);
+        framing.encode(utf8("hello"), out);
+        byte[] wire = drain(out, Integer.MAX_VALUE);
+        assertEquals(4 + 12 + 4 + 4 + 5, wire.length);
+
+        // 每次只“读到”3 个字节
+        ByteBuffer in = ByteBuffer.allocateDirect(64);
+        List<String> frames = new ArrayList<>();
+        for (int i = 0; i < wire.length; i += 3) {
+            in.put(wire, i, Math.min(3, wire.length - i));
+            in.flip();
+            ByteBuffer frame;
+            while ((frame = framing.decode(in)) != null) {
+                frames.add(string(frame));
+            }
+            in.compact();
+        }
+        assertEquals(List.of("我要吃肉", "", "hello"), frames);
+        assertEquals(0, in.position());
+    }
+
+    @Test
+    void framesAreSlices() throws IOException {
+        ByteBuffer in = ByteBuffer.allocateDirect(64).put("abc\r\ndef\n".getBytes(StandardCharsets.US_ASCII)).flip();
+        ByteBuffer first = Framing.lines(16).decode(in);
+        assertEquals("abc", string(first.duplicate()));
+        assertTrue(first.isDirect());
+        in.put(0, (byte) 'x');
+        assertEquals('x', first.get(0));
+        assertEquals("def", string(Framing.lines(16).decode(in)));
+        assertNull(Framing.lines(16).decode(in));
+    }
+
+    @Test
+    void multiByteDelimiter() throws IOException {
+        Framing framing = Framing.delimited("||".getBytes(StandardCharsets.US_ASCII), 16);
+        ByteBuffer in = ByteBuffer.allocate(64).put("a|b||c|".getBytes(StandardCharsets.US_ASCII)).flip();
+        assertEquals("a|b", string(framing.decode(in)));
+        assertNull(framing.decode(in));
+        assertEquals("c|", string(in));
+    }
+
+    @Test
+    void rejectsOversizedFrames() {
+        ByteBuffer lengthPrefixed = ByteBuffer.allocate(8).putInt(100).flip();
+        assertThrows(IOException.class, () -> Framing.lengthPrefixed(10).decode(lengthPrefixed));
+        ByteBuffer line = ByteBuffer.allocate(64).put(new byte[20]).flip();
+        assertThrows(IOException.class, () -> Framing.lines(10).decode(line));
+    }
+
+    @Test
+    void gatherWriteSurvivesPartialWrites() throws IOException {
+        Framing framing = Framing.lines(1024);
+        OutboundQueue out = new OutboundQueue();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            framing.encode(utf8("reply-" + i), out);
+            expected.append("reply-").append(i).append('\n');
+        }
+        assertEquals(expected.length(), out.remaining());
+        assertEquals(expected.toString(), new String(drain(out, 7), StandardCharsets.UTF_8));
+        assertTrue(out.isEmpty());
+        assertEquals(0, out.remaining());
+    }
+
+    /**
+     * 用每次最多接受 maxPerWrite 字节的通道写空队列
+     */
+    static byte[] drain(OutboundQueue out, int maxPerWrite) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GatheringByteChannel channel = new LimitedChannel(bytes, maxPerWrite);
+        while (!out.isEmpty()) {
+            out.writeTo(channel);
+        }
+        return bytes.toByteArray();
+    }
+
+    static ByteBuffer utf8(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String string(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    private record LimitedChannel(ByteArrayOutputStream sink, int maxPerWrite) implements GatheringByteChannel {
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            assertTrue(length <= OutboundQueue.MAX_GATHER);
+            long written = 0;
+            for (int i = offset; i < offset + length && written < maxPerWrite; i++) {
+                while (srcs[i].hasRemaining() && written < maxPerWrite) {
+                    sink.write(srcs[i].get());
+                    written++;
+                }
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            return (int) write(new ByteBuffer[]{src});
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
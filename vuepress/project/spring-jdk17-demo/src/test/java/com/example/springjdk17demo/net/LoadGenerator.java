@@ -0,0 +1,105 @@
+package com.example.springjdk17demo.net;
+
+import com.example.springjdk17demo.concurrent.LongHistogram;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 回环地址上的行协议压测客户端
+ * <p>
+ * threads 个客户端线程依次建立共 connections 个连接，每个连接以 depth 为一批流水线发送 requests 行“我要吃肉”，
+ * 读完应答后关闭输出并等待服务端关闭。统计建连耗时和每个请求从发出到收到应答的耗时（微秒）。
+ */
+class LoadGenerator {
+
+    static final String REQUEST = "我要吃肉";
+    static final String REPLY = "地主家没有余粮了";
+
+    record Result(int connections, long requests, long elapsedNanos, LongHistogram connectMicros,
+                  LongHistogram latencyMicros) {
+
+        double connectionsPerSecond() {
+            return connections * 1e9 / elapsedNanos;
+        }
+
+        double requestsPerSecond() {
+            return requests * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d connections, %d requests in %d ms: %.0f conn/s, %.0f req/s, "
+                            + "connect p99 %d us, latency p50 %d us, p99 %d us, max %d us", connections, requests,
+                    elapsedNanos / 1_000_000, connectionsPerSecond(), requestsPerSecond(), connectMicros.percentile(99),
+                    latencyMicros.percentile(50), latencyMicros.percentile(99), latencyMicros.getStats().getMax());
+        }
+    }
+
+    static Result run(InetSocketAddress address, int connections, int requests, int depth, int threads)
+            throws Exception {
+        byte[] batch = (REQUEST + "\n").repeat(depth).getBytes(StandardCharsets.UTF_8);
+        AtomicInteger remaining = new AtomicInteger(connections);
+        ExecutorService clients = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<LongHistogram[]>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(clients.submit(() -> {
+                LongHistogram connect = new LongHistogram();
+                LongHistogram latency = new LongHistogram();
+                while (remaining.getAndDecrement() > 0) {
+                    runConnection(address, requests, depth, batch, connect, latency);
+                }
+                return new LongHistogram[]{connect, latency};
+            }));
+        }
+        LongHistogram connect = new LongHistogram();
+        LongHistogram latency = new LongHistogram();
+        for (Future<LongHistogram[]> future : futures) {
+            LongHistogram[] histograms = future.get();
+            connect.merge(histograms[0]);
+            latency.merge(histograms[1]);
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        return new Result(connections, latency.getCount(), elapsed, connect, latency);
+    }
+
+    private static void runConnection(InetSocketAddress address, int requests, int depth, byte[] batch,
+                                      LongHistogram connect, LongHistogram latency) throws IOException {
+        long begin = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.setTcpNoDelay(true);
+            socket.connect(address);
+            connect.accept((System.nanoTime() - begin) / 1000);
+            OutputStream out = socket.getOutputStream();
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            for (int sent = 0; sent < requests; sent += depth) {
+                long sendTime = System.nanoTime();
+                out.write(batch);
+                for (int i = 0; i < depth; i++) {
+                    String line = reader.readLine();
+                    if (!REPLY.equals(line)) {
+                        throw new IOException("unexpected reply: " + line);
+                    }
+                    latency.accept((System.nanoTime() - sendTime) / 1000);
+                }
+            }
+            socket.shutdownOutput();
+            if (reader.read() != -1) {
+                throw new IOException("server did not close the connection");
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.springjdk17demo.net;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class NioServerTest {
+
+    static final InetSocketAddress ANY_PORT = new InetSocketAddress("127.0.0.1", 0);
+
+    @Test
+    void pipelinedRequests() throws IOException {
+        try (NioServer server = new NioServer(ANY_PORT, 2, LineHandler.MEAT, Duration.ofMinutes(1)).start();
+             Socket socket = new Socket()) {
+            socket.connect(server.getLocalAddress());
+            BufferedReader reader = reader(socket);
+            OutputStream out = socket.getOutputStream();
+            out.write("我要吃肉\nhello\r\n".getBytes(StandardCharsets.UTF_8));
+            assertEquals("地主家没有余粮了", reader.readLine());
+            assertEquals("我不知道你在说什么", reader.readLine());
+
+            // 同一连接继续使用，多字节字符被拆到两次写入
+            byte[] request = "我要吃肉".getBytes(StandardCharsets.UTF_8);
+            out.write(request, 0, 4);
+            out.flush();
+            sleep(50);
+            out.write(request, 4, request.length - 4);
+            out.write('\n');
+            socket.shutdownOutput();
+            assertEquals("地主家没有余粮了", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void lengthPrefixed() throws IOException {
+        try (NioServer server = new NioServer(ANY_PORT, 1, Framing.lengthPrefixed(1024), FrameHandler.meat(),
+                Duration.ofMinutes(1)).start();
+             Socket socket = new Socket()) {
+            socket.connect(server.getLocalAddress());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            byte[] request = "我要吃肉".getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < 3; i++) {
+                out.writeInt(request.length);
+                out.write(request);
+            }
+            out.writeInt(1);
+            out.flush();
+            socket.shutdownOutput();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < 3; i++) {
+                byte[] reply = new byte[in.readInt()];
+                in.readFully(reply);
+                assertEquals("地主家没有余粮了", new String(reply, StandardCharsets.UTF_8));
+            }
+            // 不完整的最后一帧被丢弃
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    void backpressure() throws Exception {
+        int requests = 50_000;
+        try (NioServer server = new NioServer(ANY_PORT, 1, LineHandler.MEAT, Duration.ofMinutes(1)).start();
+             Socket socket = new Socket()) {
+            socket.connect(server.getLocalAddress());
+            // 先写完全部请求再读，服务端输出积压后会暂停读取
+            CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+                try {
+                    OutputStream out = socket.getOutputStream();
+                    out.write("我要吃肉\n".repeat(requests).getBytes(StandardCharsets.UTF_8));
+                    socket.shutdownOutput();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            sleep(200);
+            BufferedReader reader = reader(socket);
+            int replies = 0;
+            while (reader.readLine() != null) {
+                replies++;
+            }
+            writer.join();
+            assertEquals(requests, replies);
+        }
+    }
+
+    @Test
+    void answersBufferedRequestsAfterPeerShutdown() throws IOException {
+        // 每个应答都达到 HIGH_WATER_MARK，服务端每处理一个请求就暂停，读到 EOF 时读缓冲里还有未处理的请求
+        int requests = 20;
+        byte[] reply = new byte[NioServer.HIGH_WATER_MARK];
+        Arrays.fill(reply, (byte) 'x');
+        FrameHandler large = frame -> ByteBuffer.wrap(reply);
+        try (NioServer server = new NioServer(ANY_PORT, 1, Framing.lines(1024), large, Duration.ofMinutes(1)).start();
+             Socket socket = new Socket()) {
+            socket.connect(server.getLocalAddress());
+            OutputStream out = socket.getOutputStream();
+            out.write("req\n".repeat(requests).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            socket.shutdownOutput();
+            BufferedReader reader = reader(socket);
+            int replies = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                assertEquals(reply.length, line.length());
+                replies++;
+            }
+            assertEquals(requests, replies);
+        }
+    }
+
+    @Test
+    void closesIdleConnections() throws IOException {
+        try (NioServer server = new NioServer(ANY_PORT, 1, LineHandler.MEAT, Duration.ofMillis(100)).start();
+             Socket socket = new Socket()) {
+            socket.connect(server.getLocalAddress());
+            socket.setSoTimeout(5000);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    @Test
+    void load() throws Exception {
+        try (NioServer server = new NioServer(ANY_PORT, Runtime.getRuntime().availableProcessors(),
+                Framing.lines(1024), FrameHandler.meat(), Duration.ofMinutes(1)).start()) {
+            LoadGenerator.Result result = LoadGenerator.run(server.getLocalAddress(), 2000, 20, 10, 16);
+            System.out.println("nio: " + result);
+            assertEquals(40_000, result.requests());
+            assertEquals(2000, server.acceptedConnections());
+            assertTrue(server.getBufferPool().allocated() < 2000 * 2);
+        }
+    }
+
+    static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
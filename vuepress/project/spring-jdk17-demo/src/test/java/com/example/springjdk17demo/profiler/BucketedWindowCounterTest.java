@@ -0,0 +1,50 @@
+package com.example.springjdk17demo.profiler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class BucketedWindowCounterTest {
+
+    @Test
+    void withinErrorBound() {
+        long interval = 100_000;
+        BucketedWindowCounter counter = new BucketedWindowCounter(interval, 50);
+        Deque<Long> events = new ArrayDeque<>();
+        SplittableRandom random = new SplittableRandom(3);
+        long nanos = -5_000_000;
+        for (int i = 0; i < 200_000; i++) {
+            nanos += i % 20_000 < 10_000 ? random.nextInt(5) : random.nextInt(200);
+            int exact = CountEvents.update(events, nanos, interval);
+            counter.record(nanos);
+            double estimate = counter.estimate(nanos);
+            assertTrue(Math.abs(estimate - exact) <= counter.errorBound(nanos) + 1e-9,
+                    i + ": " + exact + " vs " + estimate);
+        }
+    }
+
+    @Test
+    void alignedWindowIsExact() {
+        BucketedWindowCounter counter = new BucketedWindowCounter(100, 10);
+        for (long t = 0; t < 1000; t++) {
+            counter.record(t);
+        }
+        assertEquals(0, counter.errorBound(999 + 1));
+        assertEquals(100, counter.estimate(1000), 1e-9);
+    }
+
+    @Test
+    void lazyDecay() {
+        BucketedWindowCounter counter = new BucketedWindowCounter(1000, 10);
+        counter.record(0, 500);
+        assertEquals(500, counter.update(10) - 1);
+        // 很久以后桶被复用，旧计数不应残留
+        assertEquals(1, counter.update(1_000_000));
+        assertEquals(0, counter.estimate(5_000_000), 1e-9);
+        counter.record(-1);
+        assertEquals(0, counter.estimate(5_000_000), 1e-9);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.springjdk17demo.profiler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigInteger;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class FibonacciEngineTest {
+
+    @Test
+    void fib() {
+        for (int i = 0; i <= 30; i++) {
+            assertEquals(Fibonacci.fib(i), FibonacciEngine.fib(i));
+        }
+        assertEquals(7_540_113_804_746_346_429L, FibonacciEngine.fib(FibonacciEngine.MAX_LONG_INDEX));
+        assertThrows(ArithmeticException.class, () -> FibonacciEngine.fib(93));
+    }
+
+    @Test
+    void fibExact() {
+        FibonacciEngine engine = new FibonacciEngine(16);
+        BigInteger a = BigInteger.ZERO;
+        BigInteger b = BigInteger.ONE;
+        for (int i = 0; i <= 500; i++) {
+            assertEquals(a, engine.fibExact(i), "F(" + i + ")");
+            BigInteger next = a.add(b);
+            a = b;
+            b = next;
+        }
+        assertEquals("354224848179261915075", engine.fibExact(100).toString());
+        assertThrows(IllegalArgumentException.class, () -> engine.fibExact(-1));
+    }
+
+    @Test
+    void batch() {
+        FibonacciEngine engine = new FibonacciEngine();
+        List<BigInteger> values = engine.batch(10, 93, 10, 1000);
+        assertEquals(BigInteger.valueOf(55), values.get(0));
+        assertEquals(new BigInteger("12200160415121876738"), values.get(1));
+        assertEquals(values.get(0), values.get(2));
+        assertEquals(engine.fibExact(1000), values.get(3));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.springjdk17demo.profiler;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SlidingWindowCounterTest {
+
+    @Test
+    void sameAsCountEvents() {
+        long interval = 1_000;
+        SlidingWindowCounter counter = new SlidingWindowCounter(interval, 2);
+        Deque<Long> events = new ArrayDeque<>();
+        SplittableRandom random = new SplittableRandom(1);
+        long nanos = 0;
+        for (int i = 0; i < 100_000; i++) {
+            // 突发与稀疏交替，触发扩容和大量淘汰
+            nanos += i % 5000 < 2500 ? random.nextInt(3) : random.nextInt(400);
+            assertEquals(CountEvents.update(events, nanos, interval), counter.update(nanos));
+        }
+        assertEquals(0, counter.count(nanos + interval + 1));
+    }
+
+    @Test
+    void outOfOrder() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(100);
+        counter.update(1000);
+        assertEquals(2, counter.update(900));
+        assertEquals(2, counter.count(1100));
+        assertEquals(0, counter.count(1101));
+    }
+
+    @Test
+    void striped() throws InterruptedException {
+        StripedSlidingWindowCounter counter = new StripedSlidingWindowCounter(TimeUnit.HOURS.toNanos(1), 4);
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    counter.record();
+                }
+                latch.countDown();
+            });
+        }
+        latch.await();
+        executor.shutdown();
+        assertEquals(threads * perThread, counter.count());
+        assertEquals(0, counter.count(System.nanoTime() + TimeUnit.HOURS.toNanos(2)));
+    }
+}
@@ -1,17 +1,11 @@
 package com.example.springjdk17demo.spider;
 
-import com.alibaba.fastjson2.JSON;
-import com.alibaba.fastjson2.JSONObject;
+import com.example.springjdk17demo.http.SharedHttpClient;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.URL;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -21,6 +15,8 @@ import org.junit.jupiter.api.Test;
 @SuppressWarnings("NewClassNamingConvention")
 public class AiImageSpider {
 
+    private static final String TARGET_DIRECTORY = "D:/ai-drawing/";
+
     @Test
     void mazeGuruLandscape() throws IOException, InterruptedException {
         mazeGuruDownload("Landscape", false);
@@ -72,49 +68,69 @@ public class AiImageSpider {
         mazeGuruDownload("3D", true);
     }
 
+    /**
+     * 每页 100 条翻页搜索，边解析边把图片交给下载器
+     */
     private static void mazeGuruDownload(String topic, boolean isArtworkType) throws IOException, InterruptedException {
-        HttpClient client = HttpClient.newHttpClient();
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://maze.guru/maze-ai/search?start=0&limit=1000"))
-                .header("authority", "maze.guru")
-                .header("User-Agent", "Chrome/108.0.0.0 Safari/537.36")
-                .header("content-type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(
-                        "{\"order_by\":\"recommend_time\",\"order_mode\":\"desc\",\"" + (isArtworkType ? "artwork_type" : "content") + "\":\"" + topic + "\"}"))
-                .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        JSON.parseObject(response.body()).getJSONArray("data").parallelStream().forEach(item -> {
-            if (item instanceof JSONObject cur) {
-                String url = cur.getString("url");
-                download("maze-guru/", url);
-            }
-        });
+        String body = "{\"order_by\":\"recommend_time\",\"order_mode\":\"desc\",\"" + (isArtworkType ? "artwork_type" : "content") + "\":\"" + topic + "\"}";
+        try (LazyDownloader downloader = new LazyDownloader("maze-guru/")) {
+            long total = SearchResultReader.readAllPages(SharedHttpClient.getDefault(), (start, limit) -> HttpRequest.newBuilder()
+                    .uri(URI.create("https://maze.guru/maze-ai/search?start=" + start + "&limit=" + limit))
+                    .header("authority", "maze.guru")
+                    .header("User-Agent", "Chrome/108.0.0.0 Safari/537.36")
+                    .header("content-type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), 100, downloader);
+            System.out.println(total + " results, " + downloader.awaitStats());
+        }
     }
 
     /**
-     * 下载
+     * 下载器：并发下载、断点续传，已完成的记录在目录下的清单里
      *
      * @param childDir 图片子目录
-     * @param imageUrl 图像url
      */
-    public static void download(String childDir, String imageUrl) {
-        String targetDirectory = "D:/ai-drawing/" + childDir;
-        try {
-            Files.createDirectories(Path.of(targetDirectory));
-            URL url = new URL(imageUrl);
-            String fileName = imageUrl.substring(imageUrl.lastIndexOf("/") + 1);
-            Path targetPath = Path.of(targetDirectory + fileName);
-            if (Files.exists(targetPath)) {
-                return;
+    public static ImageDownloader newDownloader(String childDir) throws IOException {
+        return new ImageDownloader(SharedHttpClient.getDefault(), Path.of(TARGET_DIRECTORY + childDir), 8, 64, 3);
+    }
+
+    /**
+     * 收到第一个 URL（第一页已经成功返回）时才创建下载器，请求失败时不会在本地建目录和清单
+     */
+    private static final class LazyDownloader implements SearchResultReader.UrlSink, AutoCloseable {
+
+        private final String childDir;
+        private ImageDownloader downloader;
+
+        LazyDownloader(String childDir) {
+            this.childDir = childDir;
+        }
+
+        @Override
+        public void accept(String url) throws InterruptedException {
+            if (downloader == null) {
+                try {
+                    downloader = newDownloader(childDir);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
             }
-            try (InputStream in = url.openStream()) {
-                Files.copy(in, targetPath, StandardCopyOption.REPLACE_EXISTING);
+            downloader.submit(url);
+        }
+
+        ImageDownloader.Stats awaitStats() throws InterruptedException {
+            if (downloader == null) {
+                return new ImageDownloader.Stats(0, 0, 0, 0, 0);
+            }
+            downloader.awaitIdle();
+            return downloader.stats();
+        }
+
+        @Override
+        public void close() throws IOException, InterruptedException {
+            if (downloader != null) {
+                downloader.close();
             }
-            System.out.println("Downloaded " + fileName);
-        } catch (IOException e) {
-            System.err.println("Failed to download the image: " + e.getMessage());
         }
     }
 }
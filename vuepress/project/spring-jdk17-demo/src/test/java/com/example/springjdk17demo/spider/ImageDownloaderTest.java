@@ -0,0 +1,206 @@
+package com.example.springjdk17demo.spider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.springjdk17demo.http.SharedHttpClient;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ImageDownloaderTest {
+
+    HttpServer server;
+    ExecutorService executor;
+    final AtomicInteger requests = new AtomicInteger();
+    final List<String> ranges = new CopyOnWriteArrayList<>();
+    final Set<String> failedOnce = ConcurrentHashMap.newKeySet();
+    SharedHttpClient client = new SharedHttpClient(8, Duration.ofSeconds(5));
+
+    @TempDir
+    Path dir;
+
+    /**
+     * 合成图片：/img/正常，/flaky/第一次返回 500，/cut/第一次只发一半就断开
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(16);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            byte[] image = image(path.substring(path.lastIndexOf('/') + 1));
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                ranges.add(path + " " + range);
+            }
+            if (path.startsWith("/flaky/") && failedOnce.add(path)) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            int from = range == null ? 0 : Integer.parseInt(range.substring(6, range.length() - 1));
+            if (from >= image.length) {
+                exchange.sendResponseHeaders(416, -1);
+                exchange.close();
+                return;
+            }
+            if (range != null) {
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + from + "-" + (image.length - 1) + "/" + image.length);
+            }
+            exchange.sendResponseHeaders(range == null ? 200 : 206, image.length - from);
+            OutputStream out = exchange.getResponseBody();
+            if (path.startsWith("/cut/") && failedOnce.add(path)) {
+                out.write(image, from, (image.length - from) / 2);
+                out.flush();
+                closeQuietly(exchange);
+                return;
+            }
+            out.write(image, from, image.length - from);
+            out.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void downloadsConcurrentlyAndSkipsCompleted() throws Exception {
+        try (ImageDownloader downloader = new ImageDownloader(client, dir, 4, 8, 3)) {
+            for (int i = 0; i < 40; i++) {
+                assertTrue(downloader.submit(url("/img/" + i + ".png")));
+            }
+            downloader.awaitIdle();
+            assertEquals(new ImageDownloader.Stats(40, 0, 0, 0, totalBytes(40)), downloader.stats());
+        }
+        for (int i = 0; i < 40; i++) {
+            assertArrayEquals(image(i + ".png"), Files.readAllBytes(dir.resolve(i + ".png")));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.filter(p -> p.toString().endsWith(".part")).count());
+        }
+
+        // 重新打开：清单里的全部跳过，不再请求
+        int before = requests.get();
+        try (ImageDownloader downloader = new ImageDownloader(client, dir, 4, 8, 3)) {
+            for (int i = 0; i < 40; i++) {
+                assertFalse(downloader.submit(url("/img/" + i + ".png")));
+            }
+            assertEquals(40, downloader.stats().skipped());
+        }
+        assertEquals(before, requests.get());
+    }
+
+    @Test
+    void resumesPartialDownloads() throws Exception {
+        byte[] image = image("big.png");
+        Files.write(dir.resolve("big.png.part"), Arrays.copyOf(image, 1000));
+        try (ImageDownloader downloader = new ImageDownloader(client, dir, 2, 2, 3)) {
+            downloader.submit(url("/img/big.png"));
+            downloader.submit(url("/cut/cut.png"));
+            downloader.submit(url("/flaky/flaky.png"));
+            downloader.awaitIdle();
+            ImageDownloader.Stats stats = downloader.stats();
+            assertEquals(3, stats.downloaded());
+            assertEquals(2, stats.resumed());
+            assertEquals(0, stats.failed());
+        }
+        assertArrayEquals(image, Files.readAllBytes(dir.resolve("big.png")));
+        assertArrayEquals(image("cut.png"), Files.readAllBytes(dir.resolve("cut.png")));
+        assertArrayEquals(image("flaky.png"), Files.readAllBytes(dir.resolve("flaky.png")));
+        assertTrue(ranges.contains("/img/big.png bytes=1000-"));
+        assertTrue(ranges.contains("/cut/cut.png bytes=" + image("cut.png").length / 2 + "-"), ranges.toString());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() throws Exception {
+        server.removeContext("/");
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        try (ImageDownloader downloader = new ImageDownloader(client, dir, 1, 1, 3)) {
+            downloader.submit(url("/img/missing.png"));
+            downloader.awaitIdle();
+            assertEquals(1, downloader.stats().failed());
+        }
+        // 404 不重试
+        assertEquals(1, requests.get());
+        assertFalse(Files.exists(dir.resolve("missing.png")));
+        try (ImageDownloader downloader = new ImageDownloader(client, dir, 1, 1, 1)) {
+            assertThrows(IllegalArgumentException.class, () -> downloader.submit(url("/img/")));
+        }
+    }
+
+    @Test
+    void oneUrlPerFileName() throws Exception {
+        try (ImageDownloader downloader = new ImageDownloader(client, dir, 2, 4, 3)) {
+            assertTrue(downloader.submit(url("/img/same.png")));
+            // 不论第一次是否已下载完，同一 URL 都不会再下载
+            assertFalse(downloader.submit(url("/img/same.png")));
+            // 不同 URL 落到同一个文件名
+            assertThrows(IllegalArgumentException.class, () -> downloader.submit(url("/cut/same.png")));
+            downloader.awaitIdle();
+            assertEquals(new ImageDownloader.Stats(1, 1, 0, 0, image("same.png").length), downloader.stats());
+        }
+        assertEquals(1, requests.get());
+        // 重新打开后，清单里的文件名仍然属于原来的 URL
+        try (ImageDownloader downloader = new ImageDownloader(client, dir, 2, 4, 3)) {
+            assertThrows(IllegalArgumentException.class, () -> downloader.submit(url("/flaky/same.png")));
+        }
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    static byte[] image(String name) {
+        int seed = name.hashCode();
+        byte[] bytes = new byte[50_000 + Math.floorMod(seed, 1000)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+
+    static long totalBytes(int count) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += image(i + ".png").length;
+        }
+        return total;
+    }
+
+    static void closeQuietly(HttpExchange exchange) {
+        try {
+            exchange.close();
+        } catch (RuntimeException e) {
+            // 故意没写够 Content-Length
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.springjdk17demo.spider;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.springjdk17demo.http.SharedHttpClient;
+import com.sun.management.ThreadMXBean;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchResultReaderTest {
+
+    static final int TOTAL = 250;
+
+    HttpServer server;
+    ExecutorService executor;
+    final List<String> queries = new CopyOnWriteArrayList<>();
+    final CountDownLatch firstUrlSeen = new CountDownLatch(1);
+    final AtomicBoolean bodyFinished = new AtomicBoolean();
+    final AtomicBoolean releasedBeforeTimeout = new AtomicBoolean();
+
+    /**
+     * 分页搜索接口，每页先写一条就停下，等客户端解析出第一条 url 后再写剩下的
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.createContext("/search", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            queries.add(query);
+            int start = Integer.parseInt(query.replaceAll(".*start=(\\d+).*", "$1"));
+            int limit = Integer.parseInt(query.replaceAll(".*limit=(\\d+).*", "$1"));
+            int end = Math.min(TOTAL, start + limit);
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("{\"code\":0,\"meta\":{\"url\":\"not-an-item\"},\"data\":[".getBytes(StandardCharsets.UTF_8));
+                for (int i = start; i < end; i++) {
+                    out.write(item(i, i == start).getBytes(StandardCharsets.UTF_8));
+                    if (i == 1) {
+                        out.flush();
+                        releasedBeforeTimeout.set(awaitQuietly(firstUrlSeen));
+                    }
+                }
+                out.write("],\"total\":250}".getBytes(StandardCharsets.UTF_8));
+            }
+            if (end == TOTAL) {
+                bodyFinished.set(true);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readsItemsAsTheyArrive() throws Exception {
+        List<String> urls = new ArrayList<>();
+        AtomicBoolean finishedAtFirstUrl = new AtomicBoolean(true);
+        SharedHttpClient client = new SharedHttpClient(2, Duration.ofSeconds(5));
+        long total = SearchResultReader.readAllPages(client, (start, limit) -> HttpRequest.newBuilder()
+                .uri(URI.create("http://127.0.0.1:" + server.getAddress().getPort()
+                        + "/search?start=" + start + "&limit=" + limit))
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build(), 100, url -> {
+            if (urls.isEmpty()) {
+                finishedAtFirstUrl.set(bodyFinished.get());
+                firstUrlSeen.countDown();
+            }
+            urls.add(url);
+        });
+
+        // 响应体只到达了前两条，客户端已经拿到第一个 url
+        assertTrue(releasedBeforeTimeout.get());
+        assertFalse(finishedAtFirstUrl.get());
+        assertEquals(TOTAL, total);
+        assertEquals(List.of("start=0&limit=100", "start=100&limit=100", "start=200&limit=100"), queries);
+        // 没有 url 字段的元素不产生 url，嵌套的 url 字段被跳过
+        assertEquals(TOTAL - TOTAL / 10, urls.size());
+        assertEquals("https://img.example.com/1.png", urls.get(0));
+        assertFalse(urls.contains("not-an-item"));
+        assertFalse(urls.contains("nested"));
+    }
+
+    @Test
+    void largeBodyInConstantMemory() throws Exception {
+        // 每条约 1KB，响应体共约 50MB，边生成边读，测试本身不持有响应体
+        int count = 50_000;
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int[] seen = new int[1];
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int items = SearchResultReader.readUrls(new GeneratedBody(count, 1024), url -> seen[0]++);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(count, items);
+        assertEquals(count, seen[0]);
+        // 每条只分配 url 字符串，远小于元素本身的大小；把响应体读进内存至少要分配与响应体等量的字节
+        System.out.println("allocated " + allocated / count + " bytes per item");
+        assertTrue(allocated < 1024L * 1024 + count * 256L, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void rejectsNonObjectBody() {
+        assertThrows(IOException.class, () -> SearchResultReader.readUrls(
+                new ByteArrayInputStream("[1,2]".getBytes(StandardCharsets.UTF_8)), url -> {
+                }));
+    }
+
+    static String item(int i, boolean first) {
+        String separator = first ? "" : ",";
+        if (i % 10 == 0) {
+            return separator + "{\"id\":" + i + ",\"tags\":[\"a\"]}";
+        }
+        return separator + "{\"id\":" + i + ",\"nested\":{\"url\":\"nested\"},\"tags\":[\"a\",{\"url\":\"nested\"}],"
+                + "\"url\":\"https://img.example.com/" + i + ".png\"}";
+    }
+
+    /**
+     * 按需生成 {"data":[{"url":"u0","payload":"xx..."}, ...]}，只复用一个元素大小的缓冲，不分配与条数相关的内存
+     */
+    static final class GeneratedBody extends InputStream {
+
+        private static final byte[] HEAD = "{\"data\":[".getBytes(StandardCharsets.UTF_8);
+        private static final byte[] TAIL = "]}".getBytes(StandardCharsets.UTF_8);
+
+        private final int count;
+        private final byte[] item;
+        private final int digitsAt;
+        private int index = -1;
+        private byte[] current = HEAD;
+        private int position;
+        private int limit = HEAD.length;
+
+        GeneratedBody(int count, int payloadBytes) {
+            this.count = count;
+            String template = ",{\"url\":\"u0000000000\",\"payload\":\"" + "x".repeat(payloadBytes) + "\"}";
+            this.item = template.getBytes(StandardCharsets.UTF_8);
+            this.digitsAt = template.indexOf("u0") + 1;
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == limit && !advance()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        private boolean advance() {
+            if (current == TAIL) {
+                return false;
+            }
+            index++;
+            if (index == count) {
+                current = TAIL;
+                position = 0;
+                limit = TAIL.length;
+                return true;
+            }
+            int value = index;
+            for (int i = digitsAt + 9; i >= digitsAt; i--) {
+                item[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            current = item;
+            // 第一条不带逗号
+            position = index == 0 ? 1 : 0;
+            limit = item.length;
+            return true;
+        }
+    }
+
+    static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
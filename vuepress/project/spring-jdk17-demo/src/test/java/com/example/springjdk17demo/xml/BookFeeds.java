@@ -0,0 +1,73 @@
+package com.example.springjdk17demo.xml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 生成与 data.xml 结构相同的合成书目
+ */
+class BookFeeds {
+
+    static final String HEADER = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <bookstore xmlns="http://www.example.com/bookstore"
+                    xmlns:author="http://www.example.com/author"
+                    xmlns:publisher="http://www.example.com/publisher">
+            """;
+    static final String FOOTER = "</bookstore>\n";
+
+    /**
+     * 写入 count 本书，第 i 本的价格为 {@link #price(int)}
+     */
+    static Path write(Path file, int count) throws IOException {
+        return write(file, 0, count);
+    }
+
+    static Path write(Path file, int from, int count) throws IOException {
+        try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write(HEADER);
+            for (int i = from; i < from + count; i++) {
+                writer.write(book(i));
+            }
+            writer.write(FOOTER);
+        }
+        return file;
+    }
+
+    static String book(int i) {
+        return """
+                    <book category="%s" id="%d">
+                        <title>Book &amp; Title %d</title>
+                        <author:author>
+                            <author:name>Author %d</author:name>
+                            <author:birthplace>Place %d</author:birthplace>
+                        </author:author>
+                        <publisher:publisher>
+                            <publisher:name>Publisher %d</publisher:name>
+                            <publisher:location>City %d</publisher:location>
+                        </publisher:publisher>
+                        <price currency="USD">%s</price>
+                    </book>
+                """.formatted(i % 3 == 0 ? "fiction" : "non-fiction", i, i, i % 1000, i % 50, i % 200, i % 20,
+                price(i));
+    }
+
+    static String price(int i) {
+        return (i % 100) + "." + (i % 10) + "9";
+    }
+
+    /**
+     * 前 count 本书的价格之和
+     */
+    static double priceSum(int count) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += Double.parseDouble(price(i));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.springjdk17demo.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.springjdk17demo.xml.ParallelXmlProcessor.Partition;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelXmlProcessorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sameOrderAsSequential() throws Exception {
+        Path file = BookFeeds.write(dir.resolve("books.xml"), 5000);
+        List<String> expected = new ArrayList<>();
+        XmlRecordReader.forEach(file, "/bookstore/book", record -> expected.add(record.get("@id")));
+
+        List<Partition> partitions = ParallelXmlProcessor.partition(file, "/bookstore/book", 8 * 1024);
+        assertTrue(partitions.size() > 100, "partitions " + partitions.size());
+        assertEquals(0, partitions.get(0).start());
+        assertEquals(Files.size(file), partitions.get(partitions.size() - 1).end());
+        for (int i = 1; i < partitions.size(); i++) {
+            assertEquals(partitions.get(i - 1).end(), partitions.get(i).start());
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<String> ids = new ParallelXmlProcessor(pool, 8 * 1024).map(file, "/bookstore/book",
+                    record -> record.get("@id"));
+            assertEquals(expected, ids);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void namespacedDataXml() throws Exception {
+        // 每条记录一个分片，分片要带上根元素上的命名空间声明
+        List<String> titles = new ParallelXmlProcessor(ForkJoinPool.commonPool(), 1).map(Path.of("data.xml"),
+                "/bookstore/book", record -> record.get("author/name") + ": " + record.get("title"));
+        assertEquals(List.of("J.K. Rowling: Harry Potter and the Philosopher's Stone", "Eric Ries: The Lean Startup"),
+                titles);
+    }
+
+    @Test
+    void nullResultsAreFiltered() throws Exception {
+        Path file = BookFeeds.write(dir.resolve("books.xml"), 300);
+        List<String> fiction = new ArrayList<>();
+        long count = new ParallelXmlProcessor(ForkJoinPool.commonPool(), 4096).process(file, "/bookstore/book",
+                record -> "fiction".equals(record.get("@category")) ? record.get("@id") : null, fiction::add);
+        assertEquals(300, count);
+        assertEquals(100, fiction.size());
+        assertEquals("3", fiction.get(1));
+    }
+
+    @Test
+    void noRecords() throws Exception {
+        Path file = Files.writeString(dir.resolve("empty.xml"), BookFeeds.HEADER + BookFeeds.FOOTER);
+        assertEquals(0, new ParallelXmlProcessor(ForkJoinPool.commonPool())
+                .process(file, "/bookstore/book", record -> record, record -> fail()));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelXmlProcessor(ForkJoinPool.commonPool())
+                .map(file, "/bookstore/shelf/book", record -> record));
+    }
+
+    @Test
+    void handlerFailurePropagates() throws Exception {
+        Path file = BookFeeds.write(dir.resolve("books.xml"), 1000);
+        IllegalStateException failure = new IllegalStateException("bad record");
+        AtomicInteger active = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // 失败的分片在哪个线程上执行，抛出的都是 handler 原来的异常
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> new ParallelXmlProcessor(pool, 4096).map(file, "/bookstore/book", record -> {
+                        active.incrementAndGet();
+                        try {
+                            if ("500".equals(record.get("@id"))) {
+                                throw failure;
+                            }
+                            return record;
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                    }));
+            assertSame(failure, e);
+            // 返回前其余分片已取消或停下，不会再读已关闭的文件
+            assertEquals(0, active.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 1 到 N 个核上的吞吐。默认约 100MB，用 -Dxml.scaling.books=10000000 生成约 5GB 的文件，写盘耗时，默认不运行
+     */
+    @Test
+    @Tag("slow")
+    void scaling() throws Exception {
+        int books = Integer.getInteger("xml.scaling.books", 200_000);
+        Path file = BookFeeds.write(dir.resolve("scaling.xml"), books);
+        double mb = Files.size(file) / 1e6;
+        double expected = BookFeeds.priceSum(books);
+        int cores = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> levels = new TreeSet<>(List.of(1, cores));
+        for (int p = 2; p < cores; p *= 2) {
+            levels.add(p);
+        }
+        System.out.printf("%d books, %.1f MB, %d cores%n", books, mb, cores);
+        for (int parallelism : levels) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                ParallelXmlProcessor processor = new ParallelXmlProcessor(pool, 4L * 1024 * 1024);
+                double[] sum = new double[1];
+                long start = System.nanoTime();
+                long count = processor.process(file, "/bookstore/book",
+                        record -> Double.parseDouble(record.get("price")), price -> sum[0] += price);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("parallelism %2d: %7.1f MB/s, %9.0f records/s%n", parallelism, mb / seconds,
+                        count / seconds);
+                assertEquals(books, count);
+                assertEquals(expected, sum[0], 1e-3 * books);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.example.springjdk17demo.xml;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import org.junit.jupiter.api.Assertions;
@@ -27,9 +30,8 @@ public class XmlBaseTest {
     @Test
     public void createXMLDocument() {
         try {
-            // 创建文档工厂
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            // 当前线程缓存的文档解析器
+            DocumentBuilder builder = XmlTemplates.getDefault().documentBuilder();
 
             // 创建文档对象
             Document document = builder.newDocument();
@@ -54,8 +56,7 @@ public class XmlBaseTest {
             bookElement.appendChild(titleElement);
 
             // 将文档转换为字符串
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
+            Transformer transformer = XmlTemplates.getDefault().identity();
             StringWriter writer = new StringWriter();
             transformer.transform(new DOMSource(document), new StreamResult(writer));
             String xmlString = writer.toString();
@@ -74,9 +75,8 @@ public class XmlBaseTest {
             // XML文档字符串
             String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book></books>";
 
-            // 创建文档工厂
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            // 当前线程缓存的文档解析器
+            DocumentBuilder builder = XmlTemplates.getDefault().documentBuilder();
 
             // 从XML字符串创建文档对象
             Document document = builder.parse(new InputSource(new StringReader(xmlString)));
@@ -133,9 +133,8 @@ public class XmlBaseTest {
             // XML文档字符串
             String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book></books>";
 
-            // 创建文档工厂
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            // 当前线程缓存的文档解析器
+            DocumentBuilder builder = XmlTemplates.getDefault().documentBuilder();
 
             // 从XML字符串创建文档对象
             Document document = builder.parse(new InputSource(new StringReader(xmlString)));
@@ -145,8 +144,7 @@ public class XmlBaseTest {
             titleElement.setTextContent("Java Programming 2nd Edition");
 
             // 将修改后的文档转换为字符串
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
+            Transformer transformer = XmlTemplates.getDefault().identity();
             StringWriter writer = new StringWriter();
             transformer.transform(new DOMSource(document), new StreamResult(writer));
             String modifiedXmlString = writer.toString();
@@ -165,9 +163,8 @@ public class XmlBaseTest {
             // XML文档字符串
             String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book></books>";
 
-            // 创建文档工厂
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            // 当前线程缓存的文档解析器
+            DocumentBuilder builder = XmlTemplates.getDefault().documentBuilder();
 
             // 从XML字符串创建文档对象
             Document document = builder.parse(new InputSource(new StringReader(xmlString)));
@@ -180,8 +177,7 @@ public class XmlBaseTest {
             parentNode.removeChild(bookElement);
 
             // 将修改后的文档转换为字符串
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
+            Transformer transformer = XmlTemplates.getDefault().identity();
             StringWriter writer = new StringWriter();
             transformer.transform(new DOMSource(document), new StreamResult(writer));
             String modifiedXmlString = writer.toString();
@@ -203,34 +199,12 @@ public class XmlBaseTest {
             // XML文档字符串2
             String xmlString2 = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"2\"><title>Python Programming</title></book></books>";
 
-            // 创建文档工厂
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-
-            // 从XML字符串创建文档对象1
-            Document document1 = builder.parse(new InputSource(new StringReader(xmlString1)));
-
-            // 从XML字符串创建文档对象2
-            Document document2 = builder.parse(new InputSource(new StringReader(xmlString2)));
-
-            // 获取根节点
-            Element rootElement1 = document1.getDocumentElement();
-            Element rootElement2 = document2.getDocumentElement();
-
-            // 将文档2中的所有子节点添加到文档1的根节点下
-            NodeList childNodes = rootElement2.getChildNodes();
-            for (int i = 0; i < childNodes.getLength(); i++) {
-                Node node = childNodes.item(i);
-                Node importedNode = document1.importNode(node, true);
-                rootElement1.appendChild(importedNode);
-            }
-
-            // 将合并后的文档转换为字符串
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
-            StringWriter writer = new StringWriter();
-            transformer.transform(new DOMSource(document1), new StreamResult(writer));
-            String mergedXmlString = writer.toString();
+            // 流式合并，不建 DOM；输出与 DOM importNode 后序列化的结果一致
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            XmlMerger.concat(List.of(
+                    new ByteArrayInputStream(xmlString1.getBytes(StandardCharsets.UTF_8)),
+                    new ByteArrayInputStream(xmlString2.getBytes(StandardCharsets.UTF_8))), out);
+            String mergedXmlString = out.toString(StandardCharsets.UTF_8);
 
             // 断言合并后的XML字符串是否符合预期
             String expectedMergedXmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book><book id=\"2\"><title>Python Programming</title></book></books>";
@@ -247,9 +221,8 @@ public class XmlBaseTest {
             // XML文档字符串
             String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book><book id=\"2\"><title>Python Programming</title></book></books>";
 
-            // 创建文档工厂
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
+            // 当前线程缓存的文档解析器
+            DocumentBuilder builder = XmlTemplates.getDefault().documentBuilder();
 
             // 从XML字符串创建文档对象
             Document document = builder.parse(new InputSource(new StringReader(xmlString)));
@@ -277,7 +250,7 @@ public class XmlBaseTest {
             // XML文档字符串
             String xmlString = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book></books>";
 
-            // 创建文档工厂
+            // 校验需要单独配置的工厂，不用共享的解析器
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             factory.setValidating(true);
 
@@ -0,0 +1,203 @@
+package com.example.springjdk17demo.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+class XmlMergerTest {
+
+    static final Comparator<String> NUMERIC = Comparator.comparingLong(Long::parseLong);
+
+    @Test
+    void sameAsXmlBaseTest() throws Exception {
+        String xml1 = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book></books>";
+        String xml2 = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"2\"><title>Python Programming</title></book></books>";
+        String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><books><book id=\"1\"><title>Java Programming</title></book><book id=\"2\"><title>Python Programming</title></book></books>";
+        assertEquals(expected, concat(xml1, xml2));
+        assertEquals(expected, domConcat(xml1, xml2));
+    }
+
+    @Test
+    void concatMatchesDom() throws Exception {
+        String xml1 = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!-- catalog -->
+                <books xmlns:x="urn:x" version="2" xmlns="urn:books">
+                    <book z="1" a="2" id="1"><title>Java &amp; &lt;Spring&gt;</title><cover/></book>
+                    <!-- note -->
+                    <x:book id="2"><x:title><![CDATA[<raw> & data]]></x:title><empty></empty></x:book>
+                </books>""";
+        String xml2 = """
+                <books xmlns:x="urn:x" xmlns="urn:books"><book id="3" title="a &quot;b&quot; &lt; c">中文书名</book></books>""";
+        String xml3 = "<books xmlns=\"urn:books\">\n  <?page break?>\n  <book id=\"4\"/>\n</books>";
+        assertEquals(domConcat(xml1, xml2, xml3), concat(xml1, xml2, xml3));
+    }
+
+    @Test
+    void emptyRoots() throws Exception {
+        assertEquals(domConcat("<books/>", "<books></books>"), concat("<books/>", "<books></books>"));
+        assertEquals(domConcat("<books a='1'/>", "<books>\n</books>"), concat("<books a='1'/>", "<books>\n</books>"));
+    }
+
+    @Test
+    void concatLargeFeeds(@TempDir Path dir) throws Exception {
+        Path first = BookFeeds.write(dir.resolve("a.xml"), 0, 3000);
+        Path second = BookFeeds.write(dir.resolve("b.xml"), 3000, 3000);
+        Path merged = dir.resolve("merged.xml");
+        try (InputStream a = new BufferedInputStream(Files.newInputStream(first));
+             InputStream b = new BufferedInputStream(Files.newInputStream(second));
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(merged))) {
+            XmlMerger.concat(List.of(a, b), out);
+        }
+        assertEquals(domConcat(Files.readString(first), Files.readString(second)), Files.readString(merged));
+        assertEquals(6000, XmlRecordReader.forEach(merged, "/bookstore/book", record -> {
+        }));
+    }
+
+    @Test
+    void mergeByKeyMatchesDom() throws Exception {
+        String xml1 = "<books><book id=\"1\"><title>a1</title></book><book id=\"5\"><title>a5</title></book>"
+                + "<book id=\"10\"><title>a10</title></book></books>";
+        String xml2 = "<books>\n  <book id=\"2\"><title>b2</title></book>\n  <book id=\"5\"><title>b5</title><tag/></book>\n</books>";
+        String xml3 = "<books><book id=\"5\" edition=\"3\"><title>c5</title></book><book id=\"11\"/></books>";
+        String merged = mergeByKey(xml1, xml2, xml3);
+        assertEquals(domMergeByKey(xml1, xml2, xml3), merged);
+        assertTrue(merged.contains("<book edition=\"3\" id=\"5\"><title>c5</title></book>"), merged);
+    }
+
+    @Test
+    void rejectsUnsortedOrMismatchedInputs() {
+        assertThrows(XMLStreamException.class, () -> mergeByKey("<books><book id=\"2\"/><book id=\"1\"/></books>"));
+        assertThrows(XMLStreamException.class, () -> mergeByKey("<books><book/></books>"));
+        assertThrows(XMLStreamException.class, () -> concat("<books/>", "<shelf/>"));
+    }
+
+    /**
+     * 只统计字节数的输出，观察合并吞吐。要先生成约 50MB 的输入，默认不运行
+     */
+    @Test
+    @Tag("slow")
+    void throughput(@TempDir Path dir) throws Exception {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            files.add(BookFeeds.write(dir.resolve(i + ".xml"), i * 25_000, 25_000));
+        }
+        long[] written = new long[1];
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written[0] += len;
+            }
+        };
+        List<InputStream> inputs = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (Path file : files) {
+                inputs.add(new BufferedInputStream(Files.newInputStream(file), XmlRecordReader.BUFFER_SIZE));
+            }
+            XmlMerger.concat(inputs, new BufferedOutputStream(counter, XmlRecordReader.BUFFER_SIZE));
+        } finally {
+            for (InputStream input : inputs) {
+                input.close();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("concat 4 x 25000 books: %.1f MB in %.2f s, %.1f MB/s%n", written[0] / 1e6, seconds,
+                written[0] / 1e6 / seconds);
+        assertTrue(written[0] > 0);
+    }
+
+    private static String concat(String... xmls) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XmlMerger.concat(streams(xmls), out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String mergeByKey(String... xmls) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        XmlMerger.mergeByKey(streams(xmls), "id", NUMERIC, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<InputStream> streams(String... xmls) {
+        List<InputStream> inputs = new ArrayList<>();
+        for (String xml : xmls) {
+            inputs.add(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        }
+        return inputs;
+    }
+
+    /**
+     * XmlBaseTest.mergeXMLDocuments 的做法：importNode 后用 Transformer 序列化
+     */
+    private static String domConcat(String... xmls) throws Exception {
+        Document target = parse(xmls[0]);
+        for (int i = 1; i < xmls.length; i++) {
+            NodeList children = parse(xmls[i]).getDocumentElement().getChildNodes();
+            for (int j = 0; j < children.getLength(); j++) {
+                target.getDocumentElement().appendChild(target.importNode(children.item(j), true));
+            }
+        }
+        return serialize(target);
+    }
+
+    private static String domMergeByKey(String... xmls) throws Exception {
+        Document target = parse(xmls[0]);
+        Map<String, Node> byKey = new TreeMap<>(NUMERIC);
+        for (String xml : xmls) {
+            NodeList children = parse(xml).getDocumentElement().getChildNodes();
+            for (int j = 0; j < children.getLength(); j++) {
+                if (children.item(j) instanceof Element element) {
+                    byKey.put(element.getAttribute("id"), target.importNode(element, true));
+                }
+            }
+        }
+        Element root = target.getDocumentElement();
+        while (root.hasChildNodes()) {
+            root.removeChild(root.getFirstChild());
+        }
+        byKey.values().forEach(root::appendChild);
+        return serialize(target);
+    }
+
+    private static Document parse(String xml) throws Exception {
+        DocumentBuilder builder = XmlTemplates.getDefault().documentBuilder();
+        return builder.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String serialize(Document document) throws Exception {
+        StringWriter writer = new StringWriter();
+        XmlTemplates.getDefault().identity().transform(new DOMSource(document), new StreamResult(writer));
+        return writer.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.springjdk17demo.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class XmlRecordReaderTest {
+
+    @Test
+    void readsDataXml() throws Exception {
+        List<XmlRecord> records = new ArrayList<>();
+        assertEquals(2, XmlRecordReader.forEach(Path.of("data.xml"), "/bookstore/book", records::add));
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("@category", "fiction");
+        expected.put("title", "Harry Potter and the Philosopher's Stone");
+        expected.put("author/name", "J.K. Rowling");
+        expected.put("author/birthplace", "England");
+        expected.put("publisher/name", "Bloomsbury");
+        expected.put("publisher/location", "London");
+        expected.put("price/@currency", "USD");
+        expected.put("price", "15.99");
+        assertEquals(XmlRecord.of(expected), records.get(0));
+        assertEquals(List.copyOf(expected.keySet()), List.copyOf(records.get(0).fields().keySet()));
+        assertEquals("The Lean Startup", records.get(1).get("title"));
+    }
+
+    @Test
+    void matchesOnlyTheGivenPath() throws Exception {
+        String xml = """
+                <root>
+                  <book><title>a</title></book>
+                  <shelf><book><title>nested</title></book></shelf>
+                  <book id="2"><title><![CDATA[b & c]]></title><book><title>inner</title></book></book>
+                </root>""";
+        try (XmlRecordReader reader = new XmlRecordReader(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "/root/book");
+             Stream<XmlRecord> stream = reader.stream()) {
+            List<XmlRecord> records = stream.toList();
+            assertEquals(2, records.size());
+            assertEquals("a", records.get(0).get("title"));
+            assertEquals("b & c", records.get(1).get("title"));
+            assertEquals("inner", records.get(1).get("book/title"));
+        }
+    }
+
+    @Test
+    void syntheticFeed(@TempDir Path dir) throws Exception {
+        Path file = BookFeeds.write(dir.resolve("books.xml"), 1000);
+        double[] sum = new double[1];
+        long count = XmlRecordReader.forEach(file, "/bookstore/book", record -> {
+            sum[0] += Double.parseDouble(record.get("price"));
+            assertTrue(record.get("title").startsWith("Book & Title "));
+        });
+        assertEquals(1000, count);
+        assertEquals(BookFeeds.priceSum(1000), sum[0], 1e-6);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.springjdk17demo.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+class XmlTemplatesTest {
+
+    static final Path STYLESHEET = Path.of("transform.xsl");
+    static final String SMALL = "<bookstore><book><title>Java</title><price>1.99</price></book></bookstore>";
+
+    @Test
+    void compilesStylesheetOnce() throws Exception {
+        XmlTemplates templates = new XmlTemplates(false);
+        String first = transform(templates.transformer(STYLESHEET), new File("data.xml"));
+        String second = transform(templates.transformer(STYLESHEET), new File("data.xml"));
+        assertTrue(first.contains("<td>J.K. Rowling</td>"), first);
+        assertEquals(first, second);
+        assertSame(templates.templates(STYLESHEET), templates.templates(STYLESHEET.toAbsolutePath()));
+        assertSame(templates.transformer(STYLESHEET), templates.transformer(STYLESHEET));
+        assertEquals(1, templates.compilations());
+    }
+
+    @Test
+    void xpathPerThread() throws Exception {
+        XmlTemplates templates = XmlTemplates.getDefault();
+        Document document = templates.documentBuilder().parse(new File("data.xml"));
+        XPathExpression titles = templates.xpath("/bookstore/book/title");
+        assertSame(titles, templates.xpath("/bookstore/book/title"));
+        assertEquals(2, ((NodeList) titles.evaluate(document, XPathConstants.NODESET)).getLength());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            XPathExpression other = executor.submit(() -> templates.xpath("/bookstore/book/title")).get();
+            assertNotSame(titles, other);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void concurrentTransforms() throws Exception {
+        XmlTemplates templates = new XmlTemplates(false);
+        String expected = transform(templates.transformer(STYLESHEET), new File("data.xml"));
+        Set<Transformer> used = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        Transformer transformer = templates.transformer(STYLESHEET);
+                        used.add(transformer);
+                        assertEquals(expected, transform(transformer, new File("data.xml")));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(4, used.size());
+        assertEquals(1, templates.compilations());
+    }
+
+    @Test
+    void hotReload(@TempDir Path dir) throws Exception {
+        Path stylesheet = dir.resolve("version.xsl");
+        Files.writeString(stylesheet, stylesheet("v1"));
+        try (XmlTemplates templates = new XmlTemplates(false)) {
+            templates.watch(stylesheet);
+            assertEquals("v1", transform(templates.transformer(stylesheet), SMALL));
+
+            Files.writeString(stylesheet, stylesheet("v2"));
+            assertEquals("v2", awaitOutput(templates, stylesheet, "v2"));
+            Templates v2 = templates.templates(stylesheet);
+
+            // 写坏的样式表不替换已编译的版本
+            Files.writeString(stylesheet, "<xsl:stylesheet");
+            Thread.sleep(500);
+            assertSame(v2, templates.templates(stylesheet));
+            assertEquals("v2", transform(templates.transformer(stylesheet), SMALL));
+
+            Files.writeString(stylesheet, stylesheet("v3"));
+            assertEquals("v3", awaitOutput(templates, stylesheet, "v3"));
+        }
+    }
+
+    /**
+     * 小文档上每次新建工厂并编译样式表，与从缓存取 Transformer 的延迟对比
+     */
+    @Test
+    void latency() throws Exception {
+        XmlTemplates templates = new XmlTemplates(false);
+        int rounds = 300;
+        for (int i = 0; i < rounds; i++) {
+            uncached();
+            cached(templates);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            uncached();
+        }
+        long uncached = (System.nanoTime() - start) / rounds;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            cached(templates);
+        }
+        long cached = (System.nanoTime() - start) / rounds;
+        System.out.printf("uncached %d us/op, cached %d us/op%n", uncached / 1000, cached / 1000);
+        assertTrue(cached < uncached, "cached " + cached + " ns, uncached " + uncached + " ns");
+    }
+
+    private static String uncached() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(SMALL)));
+        String price = XPathFactory.newInstance().newXPath().evaluate("/bookstore/book/price", document);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer(new StreamSource(STYLESHEET.toFile()));
+        return price + transform(transformer, SMALL);
+    }
+
+    private static String cached(XmlTemplates templates) throws Exception {
+        Document document = templates.documentBuilder().parse(new InputSource(new StringReader(SMALL)));
+        String price = templates.xpath("/bookstore/book/price").evaluate(document);
+        return price + transform(templates.transformer(STYLESHEET), SMALL);
+    }
+
+    private static String awaitOutput(XmlTemplates templates, Path stylesheet, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        String output;
+        while (!(output = transform(templates.transformer(stylesheet), SMALL)).equals(expected)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        return output;
+    }
+
+    private static String stylesheet(String version) {
+        return """
+                <xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+                    <xsl:output method="text"/>
+                    <xsl:template match="/">%s</xsl:template>
+                </xsl:stylesheet>""".formatted(version);
+    }
+
+    private static String transform(Transformer transformer, File file) throws Exception {
+        StringWriter writer = new StringWriter();
+        transformer.transform(new StreamSource(file), new StreamResult(writer));
+        return writer.toString();
+    }
+
+    private static String transform(Transformer transformer, String xml) throws Exception {
+        StringWriter writer = new StringWriter();
+        transformer.transform(new StreamSource(new StringReader(xml)), new StreamResult(writer));
+        return writer.toString();
+    }
+}
@@ -1,10 +1,6 @@
 package com.example.springjdk17demo.xml;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -13,14 +9,12 @@ public class XpathExample {
 
     public static void main(String[] args) {
         try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse("data.xml");
+            // 工厂和编译好的表达式都由 XmlTemplates 缓存
+            XmlTemplates templates = XmlTemplates.getDefault();
+            Document document = templates.documentBuilder().parse("data.xml");
 
-            XPathFactory xPathFactory = XPathFactory.newInstance();
-            XPath xpath = xPathFactory.newXPath();
             String expression = "/bookstore/book/title";
-            NodeList nodeList = (NodeList) xpath.evaluate(expression, document, XPathConstants.NODESET);
+            NodeList nodeList = (NodeList) templates.xpath(expression).evaluate(document, XPathConstants.NODESET);
 
             for (int i = 0; i < nodeList.getLength(); i++) {
                 Node node = nodeList.item(i);
@@ -2,7 +2,6 @@ package com.example.springjdk17demo.xml;
 
 import java.io.File;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -15,11 +14,10 @@ public class XstlExample {
             File outFile = new File("output.html");
 
             StreamSource xmlSource = new StreamSource(xmlFile);
-            StreamSource xsltSource = new StreamSource(xsltFile);
             StreamResult outputResult = new StreamResult(outFile);
 
-            TransformerFactory factory = TransformerFactory.newInstance();
-            Transformer transformer = factory.newTransformer(xsltSource);
+            // 样式表只编译一次，见 XmlTemplates
+            Transformer transformer = XmlTemplates.getDefault().transformer(xsltFile.toPath());
 
             transformer.transform(xmlSource, outputResult);
 